@@ -0,0 +1,77 @@
+#!/usr/bin/env bash
+# Measures time-to-first-request and RSS of the application in several startup modes.
+#
+#   scripts/startup-benchmark.sh <cds dir> <report file>
+#
+# <cds dir> is the layout produced by ./gradlew cdsArchive (application.jar, lib/, app.jsa).
+# Each mode is started RUNS times; the first successful request to PROBE_URL ends the clock and
+# the RSS is read from /proc right after. DynamoDB does not need to be running.
+set -euo pipefail
+
+CDS_DIR=${1:?cds directory}
+REPORT=${2:?report file}
+RUNS=${RUNS:-5}
+PORT=${PORT:-18080}
+PROBE_URL=${PROBE_URL:-http://localhost:$PORT/actuator/health/liveness}
+MAIN_CLASS=br.com.reactivestarwars.ReactiveStarwarsApplication
+
+CLASSPATH="$CDS_DIR/application.jar"
+for jar in "$CDS_DIR"/lib/*.jar; do
+    CLASSPATH="$CLASSPATH:$jar"
+done
+
+now_ms() {
+    date +%s%3N
+}
+
+# run <mode> <java options...>: prints "<time to first request ms> <rss kB>"
+run() {
+    local start pid elapsed rss
+    start=$(now_ms)
+    java "$@" -cp "$CLASSPATH" "$MAIN_CLASS" --server.port="$PORT" > /dev/null 2>&1 &
+    pid=$!
+
+    until curl -sf -o /dev/null "$PROBE_URL"; do
+        if ! kill -0 "$pid" 2> /dev/null; then
+            echo "application exited before answering $PROBE_URL" >&2
+            exit 1
+        fi
+        sleep 0.01
+    done
+    elapsed=$(( $(now_ms) - start ))
+    rss=$(awk '/VmRSS/ { print $2 }' "/proc/$pid/status")
+
+    kill "$pid"
+    wait "$pid" 2> /dev/null || true
+    echo "$elapsed $rss"
+}
+
+# median of the values read on stdin
+median() {
+    sort -n | awk '{ values[NR] = $1 } END { print values[int((NR + 1) / 2)] }'
+}
+
+benchmark() {
+    local mode=$1
+    shift
+    local times=() rss=() result
+    for _ in $(seq "$RUNS"); do
+        result=$(run "$@")
+        times+=("${result% *}")
+        rss+=("${result#* }")
+    done
+    printf '    {"mode": "%s", "runs": %d, "timeToFirstRequestMs": %d, "rssKb": %d}' "$mode" "$RUNS" \
+        "$(printf '%s\n' "${times[@]}" | median)" "$(printf '%s\n' "${rss[@]}" | median)"
+}
+
+mkdir -p "$(dirname "$REPORT")"
+{
+    echo '{"results": ['
+    benchmark default -Xshare:auto
+    echo ','
+    benchmark faststart -Dspring.profiles.active=faststart
+    echo ','
+    benchmark faststart-cds -Dspring.profiles.active=faststart -XX:SharedArchiveFile="$CDS_DIR/app.jsa"
+    echo
+    echo ']}'
+} | tee "$REPORT"
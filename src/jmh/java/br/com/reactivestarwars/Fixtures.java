@@ -0,0 +1,25 @@
+package br.com.reactivestarwars;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+
+/**
+ * Loads the mock SWAPI responses shared with the test suite (src/test/resources).
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+    }
+
+    public static byte[] read(String resource) {
+        try (InputStream stream = Fixtures.class.getResourceAsStream(resource)) {
+            if (stream == null) {
+                throw new IllegalArgumentException("Fixture not found: " + resource);
+            }
+            return stream.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.reactivestarwars.domain;
+
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
+
+/**
+ * {@link Planet} as it was mapped before {@link PlanetTableSchema}: a bean read by
+ * {@code TableSchema.fromBean}, kept so the reflective mapping can be benchmarked against the static one.
+ */
+@DynamoDbBean
+public class BeanPlanet {
+
+    private String id;
+
+    private String name;
+
+    private String terrain;
+
+    private String climate;
+
+    private Integer filmCount;
+
+    private Long version;
+
+    static BeanPlanet of(Planet planet) {
+        BeanPlanet bean = new BeanPlanet();
+        bean.setId(planet.getId());
+        bean.setName(planet.getName());
+        bean.setTerrain(planet.getTerrain());
+        bean.setClimate(planet.getClimate());
+        bean.setFilmCount(planet.getFilmCount());
+        bean.setVersion(planet.getVersion());
+        return bean;
+    }
+
+    @DynamoDbPartitionKey
+    public String getId() {
+        return this.id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    @DynamoDbSecondaryPartitionKey(indexNames = {PlanetTableSchema.NAME_INDEX})
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getTerrain() {
+        return this.terrain;
+    }
+
+    public void setTerrain(String terrain) {
+        this.terrain = terrain;
+    }
+
+    public String getClimate() {
+        return this.climate;
+    }
+
+    public void setClimate(String climate) {
+        this.climate = climate;
+    }
+
+    public Integer getFilmCount() {
+        return this.filmCount;
+    }
+
+    public void setFilmCount(Integer filmCount) {
+        this.filmCount = filmCount;
+    }
+
+    public Long getVersion() {
+        return this.version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
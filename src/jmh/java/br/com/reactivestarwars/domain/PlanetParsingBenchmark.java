@@ -0,0 +1,34 @@
+package br.com.reactivestarwars.domain;
+
+import br.com.reactivestarwars.Fixtures;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlanetParsingBenchmark {
+
+    private JsonNode planetNode;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonNode response = new ObjectMapper().readTree(Fixtures.read("/mockPlanetResponse.json"));
+        this.planetNode = response.get("results").get(0);
+    }
+
+    @Benchmark
+    public Planet fromSWApi() {
+        return Planet.fromSWApi(this.planetNode);
+    }
+}
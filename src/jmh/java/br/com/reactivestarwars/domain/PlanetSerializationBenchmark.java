@@ -0,0 +1,50 @@
+package br.com.reactivestarwars.domain;
+
+import br.com.reactivestarwars.Fixtures;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlanetSerializationBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private List<Planet> planets;
+
+    @Setup
+    public void setUp() throws IOException {
+        JsonNode results = this.mapper.readTree(Fixtures.read("/mockManyPlanetResponse.json")).get("results");
+
+        this.planets = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            Planet planet = Planet.fromSWApi(results.get(i % results.size()));
+            planet.setId(UUID.randomUUID().toString());
+            this.planets.add(planet);
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return this.mapper.writeValueAsBytes(this.planets);
+    }
+}
@@ -0,0 +1,86 @@
+package br.com.reactivestarwars.domain;
+
+import br.com.reactivestarwars.Fixtures;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the static {@link PlanetTableSchema} with the reflective {@code TableSchema.fromBean}
+ * mapping it replaced, on a bean-annotated copy of the same planet.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PlanetTableSchemaBenchmark {
+
+    private TableSchema<Planet> schema;
+
+    private Planet planet;
+
+    private Map<String, AttributeValue> item;
+
+    private TableSchema<BeanPlanet> beanSchema;
+
+    private BeanPlanet beanPlanet;
+
+    private Map<String, AttributeValue> beanItem;
+
+    @Setup
+    public void setUp() throws IOException {
+        this.schema = PlanetTableSchema.INSTANCE;
+
+        this.planet = Planet.fromSWApi(new ObjectMapper()
+                .readTree(Fixtures.read("/mockPlanetResponse.json"))
+                .get("results").get(0));
+        this.planet.setId(UUID.randomUUID().toString());
+
+        this.item = this.schema.itemToMap(this.planet, true);
+
+        this.beanSchema = TableSchema.fromBean(BeanPlanet.class);
+        this.beanPlanet = BeanPlanet.of(this.planet);
+        this.beanItem = this.beanSchema.itemToMap(this.beanPlanet, true);
+    }
+
+    @Benchmark
+    public TableSchema<Planet> createSchema() {
+        return PlanetTableSchema.create();
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> itemToMap() {
+        return this.schema.itemToMap(this.planet, true);
+    }
+
+    @Benchmark
+    public Planet mapToItem() {
+        return this.schema.mapToItem(this.item);
+    }
+
+    @Benchmark
+    public TableSchema<BeanPlanet> createBeanSchema() {
+        return TableSchema.fromBean(BeanPlanet.class);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> beanItemToMap() {
+        return this.beanSchema.itemToMap(this.beanPlanet, true);
+    }
+
+    @Benchmark
+    public BeanPlanet beanMapToItem() {
+        return this.beanSchema.mapToItem(this.beanItem);
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.Fixtures;
+import br.com.reactivestarwars.domain.Planet;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse path of {@link PlanetRemoteRepository#getPlanets}: the streaming {@link SwapiPlanetParser}
+ * against the previous full-tree {@link ObjectNode} parse, on the same response body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SwapiResponseParsingBenchmark {
+
+    @Param({"1024", "8192"})
+    private int chunkSize;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    private byte[] response;
+
+    private List<byte[]> chunks;
+
+    @Setup
+    public void setUp() {
+        this.response = Fixtures.read("/mockManyPlanetResponse.json");
+
+        this.chunks = new ArrayList<>();
+        for (int offset = 0; offset < this.response.length; offset += this.chunkSize) {
+            this.chunks.add(Arrays.copyOfRange(this.response, offset, Math.min(this.response.length, offset + this.chunkSize)));
+        }
+    }
+
+    @Benchmark
+    public List<Planet> tree() throws IOException {
+        ObjectNode page = this.mapper.readValue(this.response, ObjectNode.class);
+
+        List<Planet> planets = new ArrayList<>();
+        for (JsonNode planet : page.get("results")) {
+            planets.add(Planet.fromSWApi(planet));
+        }
+        return planets;
+    }
+
+    @Benchmark
+    public List<Planet> streaming() {
+        Flux<DataBuffer> body = Flux.fromIterable(this.chunks).map(this.bufferFactory::wrap);
+
+        return new SwapiPlanetParser().parse(body).collectList().block();
+    }
+
+    @Benchmark
+    public Planet streamingFirstItem() {
+        Flux<DataBuffer> body = Flux.fromIterable(this.chunks).map(this.bufferFactory::wrap);
+
+        return new SwapiPlanetParser().parse(body).blockFirst();
+    }
+}
@@ -0,0 +1,48 @@
+package br.com.reactivestarwars.loadtest;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Samples heap allocation and GC activity of the whole JVM. The application, the workload driver and
+ * DynamoDB Local share the JVM, so the figures are only meant to be compared between runs of the same
+ * harness; allocation of threads that terminate between two samples is not counted.
+ */
+class AllocationMeter {
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    AllocationMeter() {
+        if (!this.threads.isThreadAllocatedMemoryEnabled()) {
+            this.threads.setThreadAllocatedMemoryEnabled(true);
+        }
+    }
+
+    Sample sample() {
+        long[] allocated = this.threads.getThreadAllocatedBytes(this.threads.getAllThreadIds());
+        long allocatedBytes = Arrays.stream(allocated).filter(bytes -> bytes > 0).sum();
+
+        long gcCount = 0;
+        long gcMillis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            gcCount += Math.max(collector.getCollectionCount(), 0);
+            gcMillis += Math.max(collector.getCollectionTime(), 0);
+        }
+        return new Sample(allocatedBytes, gcCount, gcMillis);
+    }
+
+    static final class Sample {
+
+        final long allocatedBytes;
+        final long gcCount;
+        final long gcMillis;
+
+        Sample(long allocatedBytes, long gcCount, long gcMillis) {
+            this.allocatedBytes = allocatedBytes;
+            this.gcCount = gcCount;
+            this.gcMillis = gcMillis;
+        }
+    }
+}
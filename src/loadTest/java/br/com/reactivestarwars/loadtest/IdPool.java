@@ -0,0 +1,30 @@
+package br.com.reactivestarwars.loadtest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Ids of the planets created by the workload and not deleted yet.
+ */
+class IdPool {
+
+    private final List<String> ids = new ArrayList<>();
+
+    synchronized void add(String id) {
+        this.ids.add(id);
+    }
+
+    synchronized String pick() {
+        return this.ids.isEmpty() ? null : this.ids.get(ThreadLocalRandom.current().nextInt(this.ids.size()));
+    }
+
+    synchronized String take() {
+        if (this.ids.isEmpty()) {
+            return null;
+        }
+        int index = ThreadLocalRandom.current().nextInt(this.ids.size());
+        String last = this.ids.remove(this.ids.size() - 1);
+        return index == this.ids.size() ? last : this.ids.set(index, last);
+    }
+}
@@ -0,0 +1,129 @@
+package br.com.reactivestarwars.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Load test settings, read from {@code loadTest.*} system properties (the Gradle task forwards
+ * {@code -PloadTest.*} project properties).
+ */
+public final class LoadTestConfig {
+
+    private final int rps;
+    private final Duration warmup;
+    private final Duration duration;
+    private final int maxInFlight;
+    private final Map<Operation, Integer> mix;
+    private final Duration swapiLatency;
+    private final double swapiErrorRate;
+    private final int dynamoPort;
+    private final Path report;
+    private final String label;
+
+    private LoadTestConfig(int rps, Duration warmup, Duration duration, int maxInFlight, Map<Operation, Integer> mix,
+                           Duration swapiLatency, double swapiErrorRate, int dynamoPort, Path report, String label) {
+        if (rps < 1) {
+            throw new IllegalArgumentException("loadTest.rps must be positive");
+        }
+        if (swapiErrorRate < 0 || swapiErrorRate > 1) {
+            throw new IllegalArgumentException("loadTest.swapi.errorRate must be between 0 and 1");
+        }
+        this.rps = rps;
+        this.warmup = warmup;
+        this.duration = duration;
+        this.maxInFlight = maxInFlight;
+        this.mix = Collections.unmodifiableMap(mix);
+        this.swapiLatency = swapiLatency;
+        this.swapiErrorRate = swapiErrorRate;
+        this.dynamoPort = dynamoPort;
+        this.report = report;
+        this.label = label;
+    }
+
+    public static LoadTestConfig fromSystemProperties() {
+        return new LoadTestConfig(
+                Integer.parseInt(System.getProperty("loadTest.rps", "200")),
+                duration("loadTest.warmup", "10s"),
+                duration("loadTest.duration", "60s"),
+                Integer.parseInt(System.getProperty("loadTest.maxInFlight", "512")),
+                parseMix(System.getProperty("loadTest.mix", "create=20,get=50,list=20,delete=10")),
+                duration("loadTest.swapi.latency", "50ms"),
+                Double.parseDouble(System.getProperty("loadTest.swapi.errorRate", "0")),
+                Integer.parseInt(System.getProperty("loadTest.dynamoPort", "8001")),
+                Paths.get(System.getProperty("loadTest.report", "build/reports/loadtest/report.json")),
+                System.getProperty("loadTest.label", ""));
+    }
+
+    private static Duration duration(String property, String defaultValue) {
+        return DurationStyle.detectAndParse(System.getProperty(property, defaultValue));
+    }
+
+    /**
+     * Parses weights such as {@code create=20,get=50,list=20,delete=10}.
+     */
+    static Map<Operation, Integer> parseMix(String value) {
+        Map<Operation, Integer> mix = new EnumMap<>(Operation.class);
+        for (String entry : value.split(",")) {
+            String[] parts = entry.trim().split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid loadTest.mix entry " + entry + ", expected operation=weight");
+            }
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("loadTest.mix weights must not be negative");
+            }
+            mix.put(Operation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)), weight);
+        }
+        if (mix.values().stream().mapToInt(Integer::intValue).sum() == 0) {
+            throw new IllegalArgumentException("loadTest.mix needs at least one positive weight");
+        }
+        return mix;
+    }
+
+    public int getRps() {
+        return this.rps;
+    }
+
+    public Duration getWarmup() {
+        return this.warmup;
+    }
+
+    public Duration getDuration() {
+        return this.duration;
+    }
+
+    public int getMaxInFlight() {
+        return this.maxInFlight;
+    }
+
+    public Map<Operation, Integer> getMix() {
+        return this.mix;
+    }
+
+    public Duration getSwapiLatency() {
+        return this.swapiLatency;
+    }
+
+    public double getSwapiErrorRate() {
+        return this.swapiErrorRate;
+    }
+
+    public int getDynamoPort() {
+        return this.dynamoPort;
+    }
+
+    public Path getReport() {
+        return this.report;
+    }
+
+    public String getLabel() {
+        return this.label;
+    }
+}
@@ -0,0 +1,120 @@
+package br.com.reactivestarwars.loadtest;
+
+import br.com.reactivestarwars.ReactiveStarwarsApplication;
+import br.com.reactivestarwars.config.TableProvisioner;
+import com.amazonaws.services.dynamodbv2.local.main.ServerRunner;
+import com.amazonaws.services.dynamodbv2.local.server.DynamoDBProxyServer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Boots the application against an in-memory DynamoDB Local and a {@link SwapiStandIn}, drives the
+ * configured workload through {@link WorkloadDriver} and writes a JSON report to loadTest.report.
+ * Program arguments are passed on to the application, e.g. {@code --planets.save.coalesce.enabled=true}.
+ */
+@Slf4j
+public final class LoadTestRunner {
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.fromSystemProperties();
+
+        DynamoDBProxyServer dynamoDb = ServerRunner.createServerFromCommandLineArgs(
+                new String[]{"-inMemory", "-port", String.valueOf(config.getDynamoPort())});
+        dynamoDb.start();
+
+        SwapiStandIn swapi = new SwapiStandIn(config.getSwapiLatency(), config.getSwapiErrorRate());
+        swapi.start();
+
+        ConnectionProvider connectionProvider = ConnectionProvider.builder("load-test")
+                .maxConnections(config.getMaxInFlight())
+                .pendingAcquireMaxCount(-1)
+                .build();
+        // separate event loops, so the driver does not compete with the server for its threads
+        LoopResources loopResources = LoopResources.create("load-test");
+
+        int exitCode = 0;
+        ConfigurableApplicationContext context = null;
+        try {
+            Map<String, Object> properties = new LinkedHashMap<>();
+            properties.put("server.port", 0);
+            properties.put("aws.dynamodb.endpoint", "http://localhost:" + config.getDynamoPort());
+            properties.put("swapi.baseUrl", swapi.baseUrl());
+
+            context = new SpringApplicationBuilder(ReactiveStarwarsApplication.class)
+                    .properties(properties)
+                    .run(args);
+            context.getBean(TableProvisioner.class).ready().block(Duration.ofMinutes(2));
+
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            WebClient webClient = WebClient.builder()
+                    .baseUrl("http://localhost:" + port)
+                    .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                            .runOn(loopResources)))
+                    .build();
+
+            Instant startedAt = Instant.now();
+            Map<String, Object> results = new WorkloadDriver(webClient, config).run();
+            writeReport(config, startedAt, swapi, results);
+        } catch (Exception ex) {
+            log.error("Load test failed", ex);
+            exitCode = 1;
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+            connectionProvider.dispose();
+            loopResources.dispose();
+            swapi.shutdown();
+            dynamoDb.stop();
+        }
+        // DynamoDB Local leaves non-daemon threads behind
+        System.exit(exitCode);
+    }
+
+    private static void writeReport(LoadTestConfig config, Instant startedAt, SwapiStandIn swapi,
+                                    Map<String, Object> results) throws Exception {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("rps", config.getRps());
+        settings.put("warmup", config.getWarmup().toString());
+        settings.put("duration", config.getDuration().toString());
+        settings.put("maxInFlight", config.getMaxInFlight());
+        settings.put("mix", config.getMix());
+        settings.put("swapiLatency", config.getSwapiLatency().toString());
+        settings.put("swapiErrorRate", config.getSwapiErrorRate());
+
+        Map<String, Object> swapiCalls = new LinkedHashMap<>();
+        swapiCalls.put("calls", swapi.getCalls());
+        swapiCalls.put("injectedErrors", swapi.getInjectedErrors());
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("label", config.getLabel());
+        report.put("startedAt", startedAt.toString());
+        report.put("config", settings);
+        report.putAll(results);
+        report.put("swapi", swapiCalls);
+
+        Files.createDirectories(config.getReport().toAbsolutePath().getParent());
+        new ObjectMapper()
+                .enable(SerializationFeature.INDENT_OUTPUT)
+                .writeValue(config.getReport().toFile(), report);
+        log.info("Load test report written to {}", config.getReport().toAbsolutePath());
+    }
+}
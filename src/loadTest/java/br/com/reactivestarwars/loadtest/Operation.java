@@ -0,0 +1,19 @@
+package br.com.reactivestarwars.loadtest;
+
+/**
+ * Requests the workload driver issues against the planets API.
+ */
+public enum Operation {
+
+    /** POST /planets with a planet name never used before, so every create misses the film count cache. */
+    CREATE,
+
+    /** GET /planets/{id} of a recently created planet. */
+    GET,
+
+    /** GET /planets?limit=50, a single page. */
+    LIST,
+
+    /** DELETE /planets/{id} of a created planet not deleted yet. */
+    DELETE
+}
@@ -0,0 +1,73 @@
+package br.com.reactivestarwars.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and outcome counters of one {@link Operation}. Latencies are measured from the
+ * moment a request was scheduled to be sent, not from when it actually was, so that a stalled
+ * service shows up in the percentiles instead of silently lowering the request rate.
+ */
+class OperationStats {
+
+    private final Recorder latencies = new Recorder(3);
+    private final LongAdder successes = new LongAdder();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    void recordSuccess(long latencyNanos) {
+        this.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        this.successes.increment();
+    }
+
+    void recordError(long latencyNanos, String reason) {
+        this.latencies.recordValue(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+        this.errors.computeIfAbsent(reason, __ -> new LongAdder()).increment();
+    }
+
+    void reset() {
+        this.latencies.reset();
+        this.successes.reset();
+        this.errors.clear();
+    }
+
+    long getErrorCount() {
+        return this.errors.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    long getCount() {
+        return this.successes.sum() + this.getErrorCount();
+    }
+
+    Map<String, Object> report(double seconds) {
+        Histogram histogram = this.latencies.getIntervalHistogram();
+
+        Map<String, Long> errorsByReason = new TreeMap<>();
+        this.errors.forEach((reason, count) -> errorsByReason.put(reason, count.sum()));
+
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("p50", millis(histogram.getValueAtPercentile(50)));
+        latencyMillis.put("p99", millis(histogram.getValueAtPercentile(99)));
+        latencyMillis.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+        latencyMillis.put("max", millis(histogram.getMaxValue()));
+        latencyMillis.put("mean", millis(histogram.getMean()));
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("count", this.getCount());
+        report.put("throughput", this.getCount() / seconds);
+        report.put("errors", this.getErrorCount());
+        report.put("errorsByReason", errorsByReason);
+        report.put("latencyMillis", latencyMillis);
+        return report;
+    }
+
+    private static double millis(double micros) {
+        return Math.round(micros) / 1000.0;
+    }
+}
@@ -0,0 +1,93 @@
+package br.com.reactivestarwars.loadtest;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local SWAPI replacement serving the mock responses of the test suite, delaying every response by a
+ * fixed latency and failing a share of the calls with 503.
+ */
+public class SwapiStandIn {
+
+    private final MockWebServer server = new MockWebServer();
+    private final Duration latency;
+    private final double errorRate;
+    private final byte[] searchResponse = read("/mockPlanetResponse.json");
+    private final byte[] pageResponse = read("/mockManyPlanetResponse.json");
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    public SwapiStandIn(Duration latency, double errorRate) {
+        this.latency = latency;
+        this.errorRate = errorRate;
+        this.server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+    }
+
+    public void start() throws IOException {
+        this.server.start();
+    }
+
+    public void shutdown() throws IOException {
+        this.server.shutdown();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + this.server.getPort();
+    }
+
+    public long getCalls() {
+        return this.calls.sum();
+    }
+
+    public long getInjectedErrors() {
+        return this.injectedErrors.sum();
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        this.calls.increment();
+
+        MockResponse response;
+        if (this.errorRate > 0 && ThreadLocalRandom.current().nextDouble() < this.errorRate) {
+            this.injectedErrors.increment();
+            response = new MockResponse().setResponseCode(503);
+        } else {
+            String path = request.getPath() == null ? "" : request.getPath();
+            byte[] body = path.contains("search=") ? this.searchResponse : this.pageResponse;
+            response = new MockResponse()
+                    .addHeader("Content-Type", "application/json")
+                    .setBody(new Buffer().write(body));
+        }
+
+        if (!this.latency.isZero()) {
+            response.setHeadersDelay(this.latency.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private static byte[] read(String resource) {
+        try (InputStream stream = SwapiStandIn.class.getResourceAsStream(resource)) {
+            if (stream == null) {
+                throw new IllegalArgumentException("Fixture not found: " + resource);
+            }
+            return stream.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package br.com.reactivestarwars.loadtest;
+
+import br.com.reactivestarwars.domain.Planet;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Open-loop driver: requests are scheduled at a fixed rate whatever the response times, up to
+ * loadTest.maxInFlight outstanding requests. Ticks that find no free slot are counted as missed.
+ */
+@Slf4j
+class WorkloadDriver {
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+    private final WebClient webClient;
+    private final LoadTestConfig config;
+    private final Operation[] weightedOperations;
+    private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+    private final IdPool ids = new IdPool();
+    private final AtomicLong nameSequence = new AtomicLong();
+    private final LongAdder missed = new LongAdder();
+    private final AllocationMeter allocationMeter = new AllocationMeter();
+
+    WorkloadDriver(WebClient webClient, LoadTestConfig config) {
+        this.webClient = webClient;
+        this.config = config;
+        this.weightedOperations = config.getMix().entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(Operation[]::new);
+        for (Operation operation : Operation.values()) {
+            this.stats.put(operation, new OperationStats());
+        }
+    }
+
+    /**
+     * Runs the warmup, discards what it recorded, then runs the measured phase and reports on it.
+     */
+    Map<String, Object> run() {
+        log.info("Warming up for {} at {} rps", this.config.getWarmup(), this.config.getRps());
+        this.drive(this.config.getWarmup());
+        this.stats.values().forEach(OperationStats::reset);
+        this.missed.reset();
+
+        log.info("Measuring for {} at {} rps", this.config.getDuration(), this.config.getRps());
+        AllocationMeter.Sample before = this.allocationMeter.sample();
+        long start = System.nanoTime();
+        this.drive(this.config.getDuration());
+        double seconds = (System.nanoTime() - start) / 1e9;
+        AllocationMeter.Sample after = this.allocationMeter.sample();
+
+        return this.report(seconds, before, after);
+    }
+
+    private void drive(Duration length) {
+        long periodNanos = Math.max(1, 1_000_000_000L / this.config.getRps());
+        long ticks = length.toNanos() / periodNanos;
+        if (ticks == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(ticks)
+                .onBackpressureDrop(tick -> this.missed.increment())
+                .flatMap(tick -> this.execute(start + (tick + 1) * periodNanos), this.config.getMaxInFlight())
+                .blockLast();
+    }
+
+    private Mono<Void> execute(long scheduledAt) {
+        Operation operation = this.weightedOperations[ThreadLocalRandom.current().nextInt(this.weightedOperations.length)];
+
+        String id = null;
+        if (operation == Operation.GET) {
+            id = this.ids.pick();
+        } else if (operation == Operation.DELETE) {
+            id = this.ids.take();
+        }
+        if (id == null && operation != Operation.LIST) {
+            // nothing to read or delete yet
+            operation = Operation.CREATE;
+        }
+
+        OperationStats operationStats = this.stats.get(operation);
+        return this.request(operation, id)
+                .timeout(REQUEST_TIMEOUT)
+                .doOnSuccess(__ -> operationStats.recordSuccess(System.nanoTime() - scheduledAt))
+                .onErrorResume(ex -> {
+                    operationStats.recordError(System.nanoTime() - scheduledAt, reason(ex));
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<Void> request(Operation operation, String id) {
+        switch (operation) {
+            case CREATE:
+                Planet planet = new Planet();
+                planet.setName("Load Test Planet " + this.nameSequence.incrementAndGet());
+                planet.setClimate("temperate");
+                planet.setTerrain("grasslands");
+                return this.webClient.post()
+                        .uri("/planets")
+                        .bodyValue(planet)
+                        .retrieve()
+                        .bodyToMono(Planet.class)
+                        .doOnNext(created -> this.ids.add(created.getId()))
+                        .then();
+            case GET:
+                return this.webClient.get()
+                        .uri("/planets/{id}", id)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .then();
+            case LIST:
+                return this.webClient.get()
+                        .uri("/planets?limit=50")
+                        .retrieve()
+                        .toBodilessEntity()
+                        .then();
+            case DELETE:
+                return this.webClient.delete()
+                        .uri("/planets/{id}", id)
+                        .retrieve()
+                        .toBodilessEntity()
+                        .then();
+            default:
+                return Mono.error(new IllegalStateException("Unknown operation " + operation));
+        }
+    }
+
+    private static String reason(Throwable ex) {
+        if (ex instanceof WebClientResponseException) {
+            return String.valueOf(((WebClientResponseException) ex).getRawStatusCode());
+        }
+        if (ex instanceof TimeoutException) {
+            return "timeout";
+        }
+        return ex.getClass().getSimpleName();
+    }
+
+    private Map<String, Object> report(double seconds, AllocationMeter.Sample before, AllocationMeter.Sample after) {
+        long requests = this.stats.values().stream().mapToLong(OperationStats::getCount).sum();
+        long errors = this.stats.values().stream().mapToLong(OperationStats::getErrorCount).sum();
+
+        Map<String, Object> operations = new LinkedHashMap<>();
+        this.stats.forEach((operation, operationStats) -> operations.put(operation.name().toLowerCase(Locale.ROOT),
+                operationStats.report(seconds)));
+
+        long allocatedBytes = after.allocatedBytes - before.allocatedBytes;
+        Map<String, Object> allocation = new LinkedHashMap<>();
+        allocation.put("bytes", allocatedBytes);
+        allocation.put("bytesPerSecond", allocatedBytes / seconds);
+        allocation.put("bytesPerRequest", requests == 0 ? 0 : allocatedBytes / requests);
+        allocation.put("gcCount", after.gcCount - before.gcCount);
+        allocation.put("gcMillis", after.gcMillis - before.gcMillis);
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("seconds", seconds);
+        report.put("requests", requests);
+        report.put("throughput", requests / seconds);
+        report.put("errors", errors);
+        report.put("missed", this.missed.sum());
+        report.put("operations", operations);
+        report.put("allocation", allocation);
+        return report;
+    }
+}
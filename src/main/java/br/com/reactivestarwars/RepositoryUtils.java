@@ -1,28 +1,46 @@
 package br.com.reactivestarwars;
 
-import br.com.reactivestarwars.domain.Planet;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.retry.backoff.FixedDelayBackoffStrategy;
+import software.amazon.awssdk.core.waiters.WaiterOverrideConfiguration;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
 import software.amazon.awssdk.enhanced.dynamodb.model.CreateTableEnhancedRequest;
-import software.amazon.awssdk.enhanced.dynamodb.model.EnhancedGlobalSecondaryIndex;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.*;
+import software.amazon.awssdk.services.dynamodb.waiters.DynamoDbAsyncWaiter;
 
-import java.util.concurrent.CompletionException;
+import java.time.Duration;
 import java.util.function.Consumer;
 
 public final class RepositoryUtils {
 
+    private RepositoryUtils() {
+    }
 
-    public static void createTableIfNotExists(DynamoDbAsyncClient dbClient, DynamoDbAsyncTable<?> table,  Consumer<CreateTableEnhancedRequest.Builder> buildRequestConsumer ) {
-        dbClient.describeTable(DescribeTableRequest.builder()
+    /**
+     * Creates the table when it does not exist yet, then completes once it is ACTIVE.
+     */
+    public static Mono<Void> createTableIfNotExists(DynamoDbAsyncClient dbClient, DynamoDbAsyncTable<?> table, Consumer<CreateTableEnhancedRequest.Builder> buildRequestConsumer) {
+        Mono<Void> created = Mono.fromFuture(() -> dbClient.describeTable(DescribeTableRequest.builder()
                 .tableName(table.tableName())
-                .build())
-                .exceptionally(ex -> {
-                    if (ex.getCause() instanceof ResourceNotFoundException) {
-                        table.createTable(buildRequestConsumer).join();
-                        return null;
-                    }
-                    throw new CompletionException(ex);
-                }).join();
+                .build()))
+                .then()
+                .onErrorResume(ResourceNotFoundException.class, ex -> Mono.fromFuture(() -> table.createTable(buildRequestConsumer)))
+                // a concurrent creator (another instance) got there first
+                .onErrorResume(ResourceInUseException.class, ex -> Mono.empty());
+
+        // the default waiter polls every 20s, far too slow for a table that is usually ACTIVE within seconds
+        Mono<Void> active = Mono.using(() -> DynamoDbAsyncWaiter.builder()
+                        .client(dbClient)
+                        .overrideConfiguration(WaiterOverrideConfiguration.builder()
+                                .backoffStrategy(FixedDelayBackoffStrategy.create(Duration.ofSeconds(1)))
+                                .maxAttempts(120)
+                                .build())
+                        .build(),
+                waiter -> Mono.fromFuture(() -> waiter.waitUntilTableExists(request -> request.tableName(table.tableName()))),
+                DynamoDbAsyncWaiter::close)
+                .then();
+
+        return created.then(active);
     }
 }
@@ -1,10 +1,16 @@
 package br.com.reactivestarwars.config;
 
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import br.com.reactivestarwars.metrics.DynamoDbMetricsInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
@@ -31,13 +37,16 @@ public class DynamoDbConfig {
 
 
     @Bean
-    public DynamoDbAsyncClient dynamoDbAsyncClient() {
+    public DynamoDbAsyncClient dynamoDbAsyncClient(MeterRegistry meterRegistry) {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(this.accessKeyId, this.secretKey);
 
         return DynamoDbAsyncClient.builder()
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .region(Region.of(this.region))
                 .endpointOverride(URI.create(this.databaseEndpoint))
+                .overrideConfiguration(ClientOverrideConfiguration.builder()
+                        .addExecutionInterceptor(new DynamoDbMetricsInterceptor(meterRegistry))
+                        .build())
                 .build()
                 ;
     }
@@ -48,4 +57,9 @@ public class DynamoDbConfig {
                 .dynamoDbClient(dynamoDbAsyncClient)
                 .build();
     }
+
+    @Bean
+    public DynamoDbAsyncTable<Planet> planetTable(DynamoDbEnhancedAsyncClient enhancedDbClient) {
+        return enhancedDbClient.table(Planet.class.getSimpleName(), PlanetTableSchema.INSTANCE);
+    }
 }
@@ -0,0 +1,24 @@
+package br.com.reactivestarwars.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stops the application as soon as it is ready. Used for the AppCDS training run, which only
+ * needs to record the classes loaded during startup.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "startup.exitAfterReady", havingValue = "true")
+public class ExitAfterStartup {
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void exit(ApplicationReadyEvent event) {
+        log.info("Application ready, exiting as requested by startup.exitAfterReady");
+        System.exit(SpringApplication.exit(event.getApplicationContext()));
+    }
+}
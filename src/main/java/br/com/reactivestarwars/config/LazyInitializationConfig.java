@@ -0,0 +1,25 @@
+package br.com.reactivestarwars.config;
+
+import br.com.reactivestarwars.repository.FilmCountEnrichmentQueue;
+import br.com.reactivestarwars.repository.PlanetIdempotencyRepository;
+import br.com.reactivestarwars.repository.PlanetRepository;
+import br.com.reactivestarwars.repository.PlanetStatsRepository;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Beans kept eager when spring.main.lazy-initialization is on (faststart profile): tables must be
+ * registered before {@link TableProvisioner} starts, and background workers must run without
+ * waiting for the first request.
+ */
+@Configuration
+public class LazyInitializationConfig {
+
+    @Bean
+    public static LazyInitializationExcludeFilter eagerBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                TableProvisioner.class, PlanetRepository.class, FilmCountEnrichmentQueue.class,
+                PlanetStatsRepository.class, PlanetIdempotencyRepository.class);
+    }
+}
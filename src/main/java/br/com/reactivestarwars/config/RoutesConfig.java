@@ -1,5 +1,6 @@
 package br.com.reactivestarwars.config;
 
+import br.com.reactivestarwars.handler.PlanetAdminHandler;
 import br.com.reactivestarwars.handler.PlanetHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -11,9 +12,10 @@ import org.springframework.web.reactive.function.server.ServerResponse;
 public class RoutesConfig {
 
     @Bean
-    public RouterFunction<ServerResponse> planetRouter(PlanetHandler resource) {
+    public RouterFunction<ServerResponse> planetRouter(PlanetHandler resource, PlanetAdminHandler adminResource) {
         return RouterFunctions
                 .route()
+                .add(adminResource.buildRouter())
                 .add(resource.buildRouter())
                 .build();
     }
@@ -0,0 +1,99 @@
+package br.com.reactivestarwars.config;
+
+import br.com.reactivestarwars.repository.SwapiCallPolicy;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP client and circuit breaker used for every SWAPI call.
+ */
+@Configuration
+public class SwapiClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider swapiConnectionProvider(@Value("${swapi.client.maxConnections:50}") int maxConnections,
+                                                      @Value("${swapi.client.pendingAcquireMaxCount:200}") int pendingAcquireMaxCount,
+                                                      @Value("${swapi.client.pendingAcquireTimeout:2s}") Duration pendingAcquireTimeout,
+                                                      @Value("${swapi.client.maxIdleTime:30s}") Duration maxIdleTime) {
+        return ConnectionProvider.builder("swapi")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public WebClient swapiWebClient(WebClient.Builder webClientBuilder,
+                                    ConnectionProvider swapiConnectionProvider,
+                                    @Value("${swapi.baseUrl}") String baseUrl,
+                                    @Value("${swapi.client.connectTimeout:2s}") Duration connectTimeout,
+                                    @Value("${swapi.client.readTimeout:5s}") Duration readTimeout,
+                                    @Value("${swapi.client.responseTimeout:5s}") Duration responseTimeout,
+                                    @Value("${swapi.client.compress:true}") boolean compress,
+                                    @Value("${swapi.client.http2:true}") boolean http2,
+                                    @Value("${swapi.client.maxInMemorySize:1MB}") DataSize maxInMemorySize) {
+        HttpClient httpClient = HttpClient.create(swapiConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout)
+                .compress(compress)
+                .doOnConnected(connection -> connection
+                        .addHandlerLast(new ReadTimeoutHandler(readTimeout.toMillis(), TimeUnit.MILLISECONDS)));
+
+        // h2 is negotiated through ALPN, so it is only offered over TLS; HTTP/1.1 stays as fallback
+        if (http2 && baseUrl.startsWith("https")) {
+            httpClient = httpClient
+                    .protocol(HttpProtocol.H2, HttpProtocol.HTTP11)
+                    .secure();
+        }
+
+        return webClientBuilder
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize((int) maxInMemorySize.toBytes()))
+                .baseUrl(baseUrl)
+                .build();
+    }
+
+    @Bean
+    public CircuitBreaker swapiCircuitBreaker(MeterRegistry meterRegistry,
+                                              @Value("${swapi.circuitBreaker.failureRateThreshold:50}") float failureRateThreshold,
+                                              @Value("${swapi.circuitBreaker.slowCallDuration:3s}") Duration slowCallDuration,
+                                              @Value("${swapi.circuitBreaker.slidingWindowSize:20}") int slidingWindowSize,
+                                              @Value("${swapi.circuitBreaker.minimumNumberOfCalls:10}") int minimumNumberOfCalls,
+                                              @Value("${swapi.circuitBreaker.waitDurationInOpenState:10s}") Duration waitDurationInOpenState,
+                                              @Value("${swapi.circuitBreaker.permittedCallsInHalfOpenState:3}") int permittedCallsInHalfOpenState) {
+        CircuitBreakerConfig config = CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(100)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumNumberOfCalls)
+                .waitDurationInOpenState(waitDurationInOpenState)
+                .permittedNumberOfCallsInHalfOpenState(permittedCallsInHalfOpenState)
+                .recordException(SwapiCallPolicy::isTransient)
+                .build();
+
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(config);
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+
+        return registry.circuitBreaker("swapi");
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.reactivestarwars.config;
+
+import br.com.reactivestarwars.RepositoryUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.retry.Retry;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.model.CreateTableEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Provisions every registered DynamoDB table once the context has started, instead of blocking
+ * bean construction. Tables are described/created in parallel and awaited until ACTIVE; readiness
+ * is reported through {@link #isReady()} and {@link #ready()}.
+ * <p>
+ * Tables must be registered while the context is being built, typically from the constructor of
+ * the repository that owns them.
+ */
+@Slf4j
+@Component
+public class TableProvisioner {
+
+    private final DynamoDbAsyncClient dbClient;
+    private final List<Mono<Void>> tables = new CopyOnWriteArrayList<>();
+    private final Sinks.Empty<Void> provisioned = Sinks.empty();
+
+    private volatile boolean started;
+    private volatile boolean ready;
+    private Disposable provisioning;
+
+    public TableProvisioner(DynamoDbAsyncClient dbClient) {
+        this.dbClient = dbClient;
+    }
+
+    public void register(DynamoDbAsyncTable<?> table, Consumer<CreateTableEnhancedRequest.Builder> buildRequestConsumer) {
+        if (this.started) {
+            throw new IllegalStateException("Table " + table.tableName() + " registered after provisioning started");
+        }
+        this.tables.add(RepositoryUtils.createTableIfNotExists(this.dbClient, table, buildRequestConsumer)
+                .doOnSuccess(__ -> log.info("Table {} is active", table.tableName())));
+    }
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void start() {
+        this.started = true;
+        this.provisioning = Flux.fromIterable(this.tables)
+                .flatMap(table -> table)
+                .then()
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                        .maxBackoff(Duration.ofSeconds(30))
+                        .doBeforeRetry(signal -> log.warn("Failed to provision DynamoDB tables, retrying", signal.failure())))
+                .subscribe(null, this.provisioned::tryEmitError, () -> {
+                    this.ready = true;
+                    this.provisioned.tryEmitEmpty();
+                });
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.provisioning != null) {
+            this.provisioning.dispose();
+        }
+    }
+
+    public boolean isReady() {
+        return this.ready;
+    }
+
+    /**
+     * Completes once every registered table is ACTIVE.
+     */
+    public Mono<Void> ready() {
+        return this.provisioned.asMono();
+    }
+}
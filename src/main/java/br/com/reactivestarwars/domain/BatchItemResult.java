@@ -0,0 +1,48 @@
+package br.com.reactivestarwars.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult {
+
+    public enum Status {
+        CREATED,
+        DELETED,
+        NOT_FOUND,
+        FAILED
+    }
+
+    private Status status;
+
+    private String id;
+
+    private Planet planet;
+
+    private String error;
+
+    public static BatchItemResult created(Planet planet) {
+        return new BatchItemResult(Status.CREATED, planet.getId(), planet, null);
+    }
+
+    public static BatchItemResult failed(Planet planet, String error) {
+        return new BatchItemResult(Status.FAILED, null, planet, error);
+    }
+
+    public static BatchItemResult deleted(String id) {
+        return new BatchItemResult(Status.DELETED, id, null, null);
+    }
+
+    public static BatchItemResult notFound(String id) {
+        return new BatchItemResult(Status.NOT_FOUND, id, null, null);
+    }
+
+    public static BatchItemResult deleteFailed(String id, String error) {
+        return new BatchItemResult(Status.FAILED, id, null, error);
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.reactivestarwars.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One Idempotency-Key of POST /planets, as stored in the PlanetIdempotency table.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyRecord {
+
+    public enum Status {
+        /**
+         * Reserved by a request that has not finished creating its planet yet.
+         */
+        IN_PROGRESS,
+        COMPLETED
+    }
+
+    private String key;
+
+    private Status status;
+
+    /**
+     * Fingerprint of the request the key was first used with; a different request under the same key is rejected.
+     */
+    private String requestHash;
+
+    /**
+     * Id the planet is created under, kept when a stale reservation is taken over so that a retry
+     * finds the planet an interrupted request may already have written instead of creating another.
+     */
+    private String planetId;
+
+    /**
+     * The created planet, replayed as the response body once the record is completed.
+     */
+    private Planet planet;
+
+    /**
+     * Epoch millis of the reservation, used to take over keys left in progress by a crashed instance.
+     */
+    private Long reservedAt;
+
+    /**
+     * Epoch seconds after which DynamoDB TTL may delete the record.
+     */
+    private Long expiresAt;
+}
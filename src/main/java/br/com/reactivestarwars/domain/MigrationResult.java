@@ -0,0 +1,23 @@
+package br.com.reactivestarwars.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of a data migration: how many items needed it, were updated, were skipped because they
+ * changed concurrently, or failed.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MigrationResult {
+
+    private long scanned;
+
+    private long updated;
+
+    private long skipped;
+
+    private long failed;
+}
@@ -1,38 +1,53 @@
 package br.com.reactivestarwars.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import lombok.Data;
-import lombok.Getter;
-import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbAttribute;
-import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
-import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
-import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbSecondaryPartitionKey;
 
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 
+/**
+ * Planet as exposed by the API and stored in DynamoDB, see {@link PlanetTableSchema} for its mapping.
+ * Attributes left out of a projection, or still unknown, are not serialized.
+ */
 @Data
-@DynamoDbBean
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class Planet {
 
-    @Getter(onMethod_ = {@DynamoDbPartitionKey})
+    private static final Pattern ID_PATTERN = Pattern.compile("\\d+");
+
     private String id;
 
-    @Getter(onMethod_ = {@DynamoDbSecondaryPartitionKey(indexNames = {"name"})})
     private String name;
 
-    @Getter(onMethod_ = {@DynamoDbAttribute("terrain")})
     private String terrain;
 
-    @Getter(onMethod_ = {@DynamoDbAttribute("climate")})
     private String climate;
 
-    @Getter(onMethod_ = {@DynamoDbAttribute("filmCount")})
     private Integer filmCount;
 
+    /**
+     * Incremented on every update and checked against If-Match; null for planets stored before versioning.
+     */
+    private Long version;
+
+    /**
+     * Shallow copy, every attribute being immutable.
+     */
+    public Planet copy() {
+        Planet copy = new Planet();
+        copy.setId(this.id);
+        copy.setName(this.name);
+        copy.setTerrain(this.terrain);
+        copy.setClimate(this.climate);
+        copy.setFilmCount(this.filmCount);
+        copy.setVersion(this.version);
+        return copy;
+    }
 
     public static Planet fromSWApi(JsonNode planetObject) {
         Planet planet = new Planet();
@@ -51,11 +66,15 @@ public class Planet {
     }
 
     private static String extractIdFromUrl(JsonNode planetObject) {
-        String url = planetObject.get("url").asText();
+        return idFromUrl(planetObject.get("url").asText());
+    }
 
-        Pattern regex = Pattern.compile("\\d+");
+    public static String idFromUrl(String url) {
+        if (url == null) {
+            return null;
+        }
 
-        Matcher match = regex.matcher(url);
+        Matcher match = ID_PATTERN.matcher(url);
 
         return match.find() ? match.group(0) : null;
     }
@@ -0,0 +1,39 @@
+package br.com.reactivestarwars.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * A planet mutation published on the change feed. Sequence numbers grow strictly, also across restarts.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PlanetChange {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /**
+         * Changes were lost between the requested position and the oldest one still replayable;
+         * the consumer should reload the planets it tracks.
+         */
+        RESYNC
+    }
+
+    private long sequence;
+
+    private Type type;
+
+    private String id;
+
+    private Planet planet;
+
+    private Instant timestamp;
+}
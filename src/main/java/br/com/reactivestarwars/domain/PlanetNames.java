@@ -0,0 +1,47 @@
+package br.com.reactivestarwars.domain;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Search keys derived from a planet name: the normalized name (case-folded, accents stripped,
+ * whitespace collapsed) and its bucket, the first character of the normalized name. Together they
+ * key the {@link PlanetTableSchema#NORMALIZED_NAME_INDEX}, so exact and prefix searches are
+ * index queries whatever the casing or accents of the input.
+ */
+public final class PlanetNames {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private PlanetNames() {
+    }
+
+    /**
+     * Normalized form of the name, {@code null} when nothing is left to index.
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFD);
+        String normalized = WHITESPACE.matcher(COMBINING_MARKS.matcher(decomposed).replaceAll(""))
+                .replaceAll(" ")
+                .trim()
+                .toLowerCase(Locale.ROOT);
+
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    /**
+     * Bucket of an already normalized name.
+     */
+    public static String bucket(String normalizedName) {
+        if (normalizedName == null) {
+            return null;
+        }
+        return normalizedName.substring(0, normalizedName.offsetByCodePoints(0, 1));
+    }
+}
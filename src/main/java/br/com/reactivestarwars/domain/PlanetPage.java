@@ -0,0 +1,13 @@
+package br.com.reactivestarwars.domain;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class PlanetPage {
+
+    private final List<Planet> items;
+
+    private final String nextCursor;
+}
@@ -0,0 +1,49 @@
+package br.com.reactivestarwars.domain;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Set;
+
+@Data
+@Builder
+public class PlanetQuery {
+
+    /**
+     * Attributes that can be requested through {@link #fields}.
+     */
+    public static final Set<String> FIELDS = Set.of("id", "name", "climate", "terrain", "filmCount");
+
+    /**
+     * Exact name, ignoring case and accents.
+     */
+    private final String name;
+
+    /**
+     * Start of the name, ignoring case and accents.
+     */
+    private final String namePrefix;
+
+    /**
+     * Substring of the planet climate, e.g. "temperate" matches "temperate, tropical".
+     */
+    private final String climate;
+
+    /**
+     * Substring of the planet terrain.
+     */
+    private final String terrain;
+
+    private final Integer minFilms;
+
+    private final Integer maxFilms;
+
+    /**
+     * Attributes to return, every attribute when empty. The id is always returned.
+     */
+    private final Set<String> fields;
+
+    private final Integer limit;
+
+    private final String cursor;
+}
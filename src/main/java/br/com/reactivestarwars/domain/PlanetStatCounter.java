@@ -0,0 +1,18 @@
+package br.com.reactivestarwars.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One counter of the PlanetStats table, such as {@code total} or {@code climate#arid}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanetStatCounter {
+
+    private String id;
+
+    private Long count;
+}
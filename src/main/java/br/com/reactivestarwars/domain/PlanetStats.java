@@ -0,0 +1,25 @@
+package br.com.reactivestarwars.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+/**
+ * Planet counts overall, per climate, per terrain and per film count. A planet listing several
+ * climates or terrains is counted once under each; missing values count as "unknown".
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PlanetStats {
+
+    private long total;
+
+    private Map<String, Long> byClimate;
+
+    private Map<String, Long> byTerrain;
+
+    private Map<String, Long> byFilmCount;
+}
@@ -0,0 +1,69 @@
+package br.com.reactivestarwars.domain;
+
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.secondaryPartitionKey;
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.secondarySortKey;
+
+/**
+ * DynamoDB mapping of {@link Planet}, built from method references instead of
+ * {@code TableSchema.fromBean}, which saves the bean introspection of {@link Planet}. The method
+ * references are still linked through the lambda metafactory when the schema is first built.
+ */
+public final class PlanetTableSchema {
+
+    public static final String NAME_INDEX = "name";
+
+    /**
+     * Partitioned on the name bucket and sorted on the normalized name, see {@link PlanetNames}.
+     */
+    public static final String NORMALIZED_NAME_INDEX = "normalizedName";
+
+    public static final String NAME_BUCKET = "nameBucket";
+
+    public static final String NORMALIZED_NAME = "normalizedName";
+
+    public static final TableSchema<Planet> INSTANCE = create();
+
+    private PlanetTableSchema() {
+    }
+
+    public static TableSchema<Planet> create() {
+        return StaticTableSchema.builder(Planet.class)
+                .newItemSupplier(Planet::new)
+                .addAttribute(String.class, attribute -> attribute.name("id")
+                        .getter(Planet::getId)
+                        .setter(Planet::setId)
+                        .tags(primaryPartitionKey()))
+                .addAttribute(String.class, attribute -> attribute.name("name")
+                        .getter(Planet::getName)
+                        .setter(Planet::setName)
+                        .tags(secondaryPartitionKey(NAME_INDEX)))
+                .addAttribute(String.class, attribute -> attribute.name("terrain")
+                        .getter(Planet::getTerrain)
+                        .setter(Planet::setTerrain))
+                .addAttribute(String.class, attribute -> attribute.name("climate")
+                        .getter(Planet::getClimate)
+                        .setter(Planet::setClimate))
+                .addAttribute(Integer.class, attribute -> attribute.name("filmCount")
+                        .getter(Planet::getFilmCount)
+                        .setter(Planet::setFilmCount))
+                .addAttribute(Long.class, attribute -> attribute.name("version")
+                        .getter(Planet::getVersion)
+                        .setter(Planet::setVersion))
+                // derived from the name on every write, never read back into the planet
+                .addAttribute(String.class, attribute -> attribute.name(NAME_BUCKET)
+                        .getter(planet -> PlanetNames.bucket(PlanetNames.normalize(planet.getName())))
+                        .setter((planet, bucket) -> {
+                        })
+                        .tags(secondaryPartitionKey(NORMALIZED_NAME_INDEX)))
+                .addAttribute(String.class, attribute -> attribute.name(NORMALIZED_NAME)
+                        .getter(planet -> PlanetNames.normalize(planet.getName()))
+                        .setter((planet, normalizedName) -> {
+                        })
+                        .tags(secondarySortKey(NORMALIZED_NAME_INDEX)))
+                .build();
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.reactivestarwars.domain;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Attributes an update sets on a planet; a null value removes the attribute. Only the name, climate
+ * and terrain can be edited, the film count follows the name.
+ */
+public final class PlanetUpdate {
+
+    public static final Set<String> FIELDS = Set.of("name", "climate", "terrain");
+
+    private final Map<String, String> values;
+
+    private PlanetUpdate(Map<String, String> values) {
+        if (values.containsKey("name") && (values.get("name") == null || values.get("name").isBlank())) {
+            throw new IllegalArgumentException("name must not be blank");
+        }
+        this.values = Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Full replacement (PUT): attributes missing from {@code planet} are removed.
+     */
+    public static PlanetUpdate replace(Planet planet) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("name", planet.getName());
+        values.put("climate", planet.getClimate());
+        values.put("terrain", planet.getTerrain());
+        return new PlanetUpdate(values);
+    }
+
+    /**
+     * JSON merge patch (PATCH): only the attributes present are changed, null removes one.
+     */
+    public static PlanetUpdate patch(Map<String, Object> patch) {
+        Map<String, String> values = new LinkedHashMap<>();
+        patch.forEach((field, value) -> {
+            if (!FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Cannot update " + field + ", expected one of " + FIELDS);
+            }
+            if (value != null && !(value instanceof String)) {
+                throw new IllegalArgumentException(field + " must be a string");
+            }
+            values.put(field, (String) value);
+        });
+        return new PlanetUpdate(values);
+    }
+
+    /**
+     * Copy of {@code current} with the update applied.
+     */
+    public Planet applyTo(Planet current) {
+        Planet updated = new Planet();
+        updated.setId(current.getId());
+        updated.setName(this.values.getOrDefault("name", current.getName()));
+        updated.setClimate(this.values.getOrDefault("climate", current.getClimate()));
+        updated.setTerrain(this.values.getOrDefault("terrain", current.getTerrain()));
+        updated.setFilmCount(current.getFilmCount());
+        updated.setVersion(current.getVersion());
+        return updated;
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.reactivestarwars.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * Another request with the same Idempotency-Key is still being processed.
+ */
+public class IdempotencyKeyInProgressException extends ResponseStatusException {
+
+    public IdempotencyKeyInProgressException() {
+        super(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress");
+    }
+}
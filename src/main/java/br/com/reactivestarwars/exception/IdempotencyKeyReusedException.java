@@ -0,0 +1,14 @@
+package br.com.reactivestarwars.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The Idempotency-Key was already used with a different request body.
+ */
+public class IdempotencyKeyReusedException extends ResponseStatusException {
+
+    public IdempotencyKeyReusedException() {
+        super(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used with a different request");
+    }
+}
@@ -0,0 +1,14 @@
+package br.com.reactivestarwars.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The planet was modified since the version the client based its update on.
+ */
+public class PlanetVersionConflictException extends ResponseStatusException {
+
+    public PlanetVersionConflictException(long currentVersion) {
+        super(HttpStatus.PRECONDITION_FAILED, "Planet was modified, current version is " + currentVersion);
+    }
+}
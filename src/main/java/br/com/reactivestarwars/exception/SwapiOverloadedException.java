@@ -0,0 +1,11 @@
+package br.com.reactivestarwars.exception;
+
+/**
+ * A SWAPI call was refused locally because too many calls were already in flight or waiting.
+ */
+public class SwapiOverloadedException extends SwapiUnavailableException {
+
+    public SwapiOverloadedException(String reason) {
+        super("Too many concurrent SWAPI calls: " + reason, null);
+    }
+}
@@ -0,0 +1,19 @@
+package br.com.reactivestarwars.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * SWAPI could not answer in time, either because the circuit breaker is open, because
+ * every attempt failed or because the call could not get a bulkhead slot.
+ */
+public class SwapiUnavailableException extends ResponseStatusException {
+
+    public SwapiUnavailableException(Throwable cause) {
+        this("SWAPI is unavailable", cause);
+    }
+
+    protected SwapiUnavailableException(String reason, Throwable cause) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, reason, cause);
+    }
+}
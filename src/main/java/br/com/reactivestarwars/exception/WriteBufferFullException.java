@@ -0,0 +1,14 @@
+package br.com.reactivestarwars.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * The write buffer already holds as many pending writes as it accepts; the client should retry later.
+ */
+public class WriteBufferFullException extends ResponseStatusException {
+
+    public WriteBufferFullException() {
+        super(HttpStatus.SERVICE_UNAVAILABLE, "Too many pending writes");
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.reactivestarwars.handler;
+
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.metrics.StreamMetrics;
+import br.com.reactivestarwars.repository.NormalizedNameMigration;
+import br.com.reactivestarwars.repository.PlanetRepository;
+import br.com.reactivestarwars.repository.PlanetStatsRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+@Component
+public class PlanetAdminHandler {
+
+    private final PlanetRepository planetRepository;
+    private final NormalizedNameMigration normalizedNameMigration;
+    private final PlanetStatsRepository planetStats;
+    private final StreamMetrics streamMetrics;
+    private final int defaultSegments;
+    private final int maxSegments;
+
+    public PlanetAdminHandler(PlanetRepository planetRepository, NormalizedNameMigration normalizedNameMigration,
+                              PlanetStatsRepository planetStats, StreamMetrics streamMetrics,
+                              @Value("${planets.export.totalSegments:4}") int defaultSegments,
+                              @Value("${planets.export.maxSegments:64}") int maxSegments) {
+        this.planetRepository = planetRepository;
+        this.normalizedNameMigration = normalizedNameMigration;
+        this.planetStats = planetStats;
+        this.streamMetrics = streamMetrics;
+        this.defaultSegments = defaultSegments;
+        this.maxSegments = maxSegments;
+    }
+
+    public RouterFunction<ServerResponse> buildRouter() {
+        return RouterFunctions
+                .route()
+                .path("/admin/planets", route -> route
+                        .GET("/export", this::export)
+                        .POST("/migrations/normalized-name", this::migrateNormalizedName)
+                        .POST("/stats/rebuild", this::rebuildStats))
+                .build();
+    }
+
+    public Mono<ServerResponse> export(ServerRequest request) {
+
+        Integer segments = request.queryParam("segments")
+                .filter(param -> param.matches("^\\d{1,4}$"))
+                .map(Integer::valueOf)
+                .filter(param -> param > 0)
+                .map(param -> Math.min(param, this.maxSegments))
+                .orElse(this.defaultSegments);
+
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(BodyInserters.fromPublisher(this.streamMetrics.count("export", this.planetRepository.exportAll(segments)),
+                        Planet.class));
+    }
+
+    /**
+     * Runs the normalized-name migration to completion and answers with its counts. Safe to repeat.
+     */
+    public Mono<ServerResponse> migrateNormalizedName(ServerRequest request) {
+        return this.normalizedNameMigration.run()
+                .flatMap(result -> ServerResponse.ok().bodyValue(result));
+    }
+
+    /**
+     * Recomputes the planet statistics from a parallel scan of the planet table and answers with them.
+     */
+    public Mono<ServerResponse> rebuildStats(ServerRequest request) {
+        return this.planetStats.rebuild(this.planetRepository.exportAll(this.defaultSegments))
+                .flatMap(stats -> ServerResponse.ok().bodyValue(stats));
+    }
+}
@@ -1,30 +1,86 @@
 package br.com.reactivestarwars.handler;
 
+import br.com.reactivestarwars.domain.BatchItemResult;
 import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetChange;
+import br.com.reactivestarwars.domain.PlanetQuery;
+import br.com.reactivestarwars.domain.PlanetUpdate;
+import br.com.reactivestarwars.metrics.StreamMetrics;
+import br.com.reactivestarwars.repository.PlanetChangeFeed;
+import br.com.reactivestarwars.repository.PlanetIdempotencyRepository;
 import br.com.reactivestarwars.repository.PlanetRemoteRepository;
 import br.com.reactivestarwars.repository.PlanetRepository;
+import br.com.reactivestarwars.repository.PlanetStatsRepository;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.BodyInserters;
 import org.springframework.web.reactive.function.server.RouterFunction;
 import org.springframework.web.reactive.function.server.RouterFunctions;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Component
 @Slf4j
 public class PlanetHandler {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final ParameterizedTypeReference<Map<String, Object>> PATCH_TYPE = new ParameterizedTypeReference<>() {
+    };
+
+    private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_NDJSON,
+            MediaType.TEXT_EVENT_STREAM);
+
     private final PlanetRepository planetRepository;
     private final PlanetRemoteRepository planetRemoteRepository;
+    private final PlanetStatsRepository planetStats;
+    private final PlanetChangeFeed changeFeed;
+    private final PlanetIdempotencyRepository idempotency;
+    private final StreamMetrics streamMetrics;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+    private final PlanetChangeFeed.SlowConsumerPolicy defaultSlowConsumerPolicy;
+    private final Duration changesHeartbeat;
 
 
-    public PlanetHandler(PlanetRepository planetRepository, PlanetRemoteRepository planetRemoteRepository) {
+    public PlanetHandler(PlanetRepository planetRepository, PlanetRemoteRepository planetRemoteRepository,
+                         PlanetStatsRepository planetStats, PlanetChangeFeed changeFeed, PlanetIdempotencyRepository idempotency,
+                         StreamMetrics streamMetrics,
+                         @Value("${planets.page.defaultSize:100}") int defaultPageSize,
+                         @Value("${planets.page.maxSize:1000}") int maxPageSize,
+                         @Value("${planets.changes.slowConsumerPolicy:DROP_OLDEST}") PlanetChangeFeed.SlowConsumerPolicy defaultSlowConsumerPolicy,
+                         @Value("${planets.changes.heartbeat:15s}") Duration changesHeartbeat) {
         this.planetRepository = planetRepository;
         this.planetRemoteRepository = planetRemoteRepository;
+        this.planetStats = planetStats;
+        this.changeFeed = changeFeed;
+        this.idempotency = idempotency;
+        this.streamMetrics = streamMetrics;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+        this.defaultSlowConsumerPolicy = defaultSlowConsumerPolicy;
+        this.changesHeartbeat = changesHeartbeat;
     }
 
     public RouterFunction<ServerResponse> buildRouter() {
@@ -32,39 +88,258 @@ public class PlanetHandler {
                 .route()
                 .path("/planets", route -> route
                         .GET("/remote", this::getRemotePlanets)
+                        .POST("/batch", this::createBatch)
+                        .GET("/stats", this::getStats)
+                        .GET("/changes", this::getChanges)
                         .GET("/{id}", this::findById)
+                        .PUT("/{id}", this::replace)
+                        .PATCH("/{id}", this::patch)
                         .DELETE("/{id}", this::delete))
                 .GET(this::getAll)
                 .POST(this::create)
+                .DELETE(this::deleteAll)
                 .build();
 
     }
 
+    /**
+     * Creates a planet. With an Idempotency-Key header the planet is created at most once per key, and
+     * repeating the request answers with the planet created the first time.
+     */
     public Mono<ServerResponse> create(ServerRequest request) {
 
+        String idempotencyKey = request.headers().firstHeader(IDEMPOTENCY_KEY_HEADER);
+        if (idempotencyKey == null) {
+            return request.bodyToMono(Planet.class)
+                    .flatMap(this.planetRepository::save)
+                    .flatMap(planet -> created(planet).bodyValue(planet));
+        }
+        if (!idempotencyKey.matches("^[\\x21-\\x7E]{1,255}$")) {
+            return ServerResponse.badRequest().bodyValue("Idempotency-Key must be 1 to 255 visible ASCII characters");
+        }
+
         return request.bodyToMono(Planet.class)
-                .flatMap(this.planetRepository::save)
-                .flatMap(planet -> ServerResponse.created(URI.create("/planets/" + planet.getId()))
-                        .bodyValue(planet));
+                .flatMap(planet -> this.idempotency.execute(idempotencyKey, PlanetIdempotencyRepository.fingerprint(planet),
+                        planetId -> this.planetRepository.saveOnce(planetId, planet)))
+                .flatMap(outcome -> created(outcome.getPlanet())
+                        .header(IDEMPOTENT_REPLAYED_HEADER, Boolean.toString(outcome.isReplayed()))
+                        .bodyValue(outcome.getPlanet()));
     }
 
+    private static ServerResponse.BodyBuilder created(Planet planet) {
+        return ServerResponse.created(URI.create("/planets/" + planet.getId())).eTag(eTag(planet));
+    }
 
-    public Mono<ServerResponse> getAll(ServerRequest request) {
+    public Mono<ServerResponse> createBatch(ServerRequest request) {
 
-        String name = request.queryParam("name").orElse("");
+        Flux<Planet> planets = request.bodyToFlux(Planet.class);
+        Flux<BatchItemResult> results = this.streamMetrics.count("createBatch", this.planetRepository.saveAll(planets));
 
         return ServerResponse.ok()
-                .body(BodyInserters.fromPublisher(this.planetRepository.getAll(name), Planet.class));
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(BodyInserters.fromPublisher(results, BatchItemResult.class));
+    }
+
+
+    public Mono<ServerResponse> getAll(ServerRequest request) {
+
+        Optional<String> limit = request.queryParam("limit");
+        Optional<String> cursor = request.queryParam("cursor");
+
+        if (limit.isEmpty() && cursor.isEmpty()) {
+            return Mono.fromCallable(() -> this.parseQuery(request).build())
+                    .flatMap(query -> this.stream(request, ServerResponse.ok(), "getAll", this.planetRepository.getAll(query),
+                            Planet.class))
+                    .onErrorResume(IllegalArgumentException.class, ex -> ServerResponse.badRequest().bodyValue(ex.getMessage()));
+        }
+
+        return Mono.fromCallable(() -> this.parseQuery(request)
+                .limit(this.parsePageSize(limit))
+                .cursor(cursor.orElse(null))
+                .build())
+                .flatMap(this.planetRepository::getPage)
+                .flatMap(page -> {
+                    ServerResponse.BodyBuilder response = ServerResponse.ok();
+                    if (page.getNextCursor() != null) {
+                        response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+                    }
+                    return this.stream(request, response, "getPage", Flux.fromIterable(page.getItems()), Planet.class);
+                })
+                .onErrorResume(IllegalArgumentException.class, ex -> ServerResponse.badRequest().bodyValue(ex.getMessage()));
+    }
+
+    private PlanetQuery.PlanetQueryBuilder parseQuery(ServerRequest request) {
+        Integer minFilms = this.parseFilmCount(request, "minFilms");
+        Integer maxFilms = this.parseFilmCount(request, "maxFilms");
+        if (minFilms != null && maxFilms != null && minFilms > maxFilms) {
+            throw new IllegalArgumentException("minFilms must not be greater than maxFilms");
+        }
+
+        Optional<String> name = request.queryParam("name");
+        Optional<String> namePrefix = request.queryParam("namePrefix");
+        if (name.isPresent() && namePrefix.isPresent()) {
+            throw new IllegalArgumentException("name and namePrefix cannot be combined");
+        }
+
+        return PlanetQuery.builder()
+                .name(name.orElse(""))
+                .namePrefix(namePrefix.orElse(null))
+                .climate(request.queryParam("climate").orElse(null))
+                .terrain(request.queryParam("terrain").orElse(null))
+                .minFilms(minFilms)
+                .maxFilms(maxFilms)
+                .fields(this.parseFields(request));
+    }
+
+    private Integer parseFilmCount(ServerRequest request, String param) {
+        return request.queryParam(param)
+                .map(value -> {
+                    if (!value.matches("^\\d{1,9}$")) {
+                        throw new IllegalArgumentException(param + " must be a non-negative number");
+                    }
+                    return Integer.valueOf(value);
+                })
+                .orElse(null);
+    }
+
+    private Set<String> parseFields(ServerRequest request) {
+        Set<String> fields = new LinkedHashSet<>();
+        request.queryParams().getOrDefault("fields", List.of()).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .forEach(field -> {
+                    if (!PlanetQuery.FIELDS.contains(field)) {
+                        throw new IllegalArgumentException("Unknown field " + field + ", expected one of " + PlanetQuery.FIELDS);
+                    }
+                    fields.add(field);
+                });
+        return fields;
+    }
+
+    private Integer parsePageSize(Optional<String> limit) {
+        int pageSize = limit
+                .map(value -> {
+                    if (!value.matches("^\\d{1,9}$")) {
+                        throw new IllegalArgumentException("limit must be a positive number");
+                    }
+                    return Integer.valueOf(value);
+                })
+                .orElse(this.defaultPageSize);
+
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("limit must be a positive number");
+        }
+        return Math.min(pageSize, this.maxPageSize);
+    }
+
+    public Mono<ServerResponse> getStats(ServerRequest request) {
+
+        return ServerResponse.ok().bodyValue(this.planetStats.get());
+    }
+
+    /**
+     * Streams planet changes as Server-Sent Events whose ids are the change sequence numbers, so
+     * reconnecting clients resume through Last-Event-ID (or the lastEventId parameter). Slow consumers
+     * follow the policy parameter, drop-oldest or disconnect. Comment lines keep idle connections open.
+     */
+    public Mono<ServerResponse> getChanges(ServerRequest request) {
+
+        return Mono.fromCallable(() -> {
+            Long lastEventId = Optional.ofNullable(request.headers().firstHeader("Last-Event-ID"))
+                    .or(() -> request.queryParam("lastEventId"))
+                    .map(value -> {
+                        if (!value.matches("^\\d{1,18}$")) {
+                            throw new IllegalArgumentException("Last-Event-ID must be a change sequence number");
+                        }
+                        return Long.valueOf(value);
+                    })
+                    .orElse(null);
+            PlanetChangeFeed.SlowConsumerPolicy policy = request.queryParam("policy")
+                    .map(value -> {
+                        try {
+                            return PlanetChangeFeed.SlowConsumerPolicy.valueOf(value.replace('-', '_').toUpperCase(Locale.ROOT));
+                        } catch (IllegalArgumentException ex) {
+                            throw new IllegalArgumentException("policy must be drop-oldest or disconnect");
+                        }
+                    })
+                    .orElse(this.defaultSlowConsumerPolicy);
+
+            Flux<ServerSentEvent<PlanetChange>> changes = this.changeFeed.changes(lastEventId, policy)
+                    .map(change -> ServerSentEvent.builder(change)
+                            .id(Long.toString(change.getSequence()))
+                            .event(change.getType().name())
+                            .build());
+            // the first heartbeat goes out straight away, committing the response
+            Flux<ServerSentEvent<PlanetChange>> heartbeats = Flux.interval(Duration.ZERO, this.changesHeartbeat)
+                    .onBackpressureDrop()
+                    .map(tick -> ServerSentEvent.<PlanetChange>builder().comment("heartbeat").build());
+
+            return Flux.merge(changes, heartbeats);
+        })
+                .flatMap(events -> ServerResponse.ok()
+                        .contentType(MediaType.TEXT_EVENT_STREAM)
+                        .body(BodyInserters.fromServerSentEvents(events)))
+                .onErrorResume(IllegalArgumentException.class, ex -> ServerResponse.badRequest().bodyValue(ex.getMessage()));
     }
 
     public Mono<ServerResponse> findById(ServerRequest request) {
 
         String id = request.pathVariable("id");
         return this.planetRepository.findById(id)
-                .flatMap(planet -> ServerResponse.ok().bodyValue(planet))
+                .flatMap(planet -> ServerResponse.ok().eTag(eTag(planet)).bodyValue(planet))
                 .switchIfEmpty(ServerResponse.notFound().build());
     }
 
+    /**
+     * Replaces the editable attributes of a planet. Requires If-Match with the planet's ETag, or *.
+     */
+    public Mono<ServerResponse> replace(ServerRequest request) {
+
+        return this.update(request, request.bodyToMono(Planet.class).map(PlanetUpdate::replace));
+    }
+
+    /**
+     * Applies a JSON merge patch to the editable attributes of a planet. Requires If-Match with the
+     * planet's ETag, or *.
+     */
+    public Mono<ServerResponse> patch(ServerRequest request) {
+
+        return this.update(request, request.bodyToMono(PATCH_TYPE).map(PlanetUpdate::patch));
+    }
+
+    private Mono<ServerResponse> update(ServerRequest request, Mono<PlanetUpdate> update) {
+        String ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        if (ifMatch == null) {
+            return ServerResponse.status(HttpStatus.PRECONDITION_REQUIRED)
+                    .bodyValue("If-Match header with the planet ETag is required");
+        }
+
+        Long expectedVersion;
+        if (ifMatch.trim().equals("*")) {
+            expectedVersion = null;
+        } else {
+            // If-Match uses the strong comparison: a weak W/ tag never matches
+            String tag = ifMatch.trim();
+            if (!tag.matches("^(\"?)\\d{1,18}\\1$")) {
+                return ServerResponse.status(HttpStatus.PRECONDITION_FAILED).bodyValue("If-Match does not match any version");
+            }
+            expectedVersion = Long.valueOf(tag.replace("\"", ""));
+        }
+
+        String id = request.pathVariable("id");
+        return update
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("Request body is required")))
+                .flatMap(changes -> this.planetRepository.update(id, expectedVersion, changes))
+                .flatMap(planet -> ServerResponse.ok().eTag(eTag(planet)).bodyValue(planet))
+                .switchIfEmpty(ServerResponse.notFound().build())
+                .onErrorResume(IllegalArgumentException.class, ex -> ServerResponse.badRequest().bodyValue(ex.getMessage()));
+    }
+
+    private static String eTag(Planet planet) {
+        return "\"" + (planet.getVersion() == null ? 0 : planet.getVersion()) + "\"";
+    }
+
     public Mono<ServerResponse> getRemotePlanets(ServerRequest request) {
 
         Integer page = request.queryParam("page")
@@ -72,8 +347,8 @@ public class PlanetHandler {
                 .map(Integer::valueOf)
                 .orElse(1);
 
-        return ServerResponse.ok()
-                .body(BodyInserters.fromPublisher(this.planetRemoteRepository.getPlanets(page), Planet.class));
+        return this.stream(request, ServerResponse.ok(), "getRemotePlanets", this.planetRemoteRepository.getPlanets(page),
+                Planet.class);
     }
 
     public Mono<ServerResponse> delete(ServerRequest request) {
@@ -85,4 +360,64 @@ public class PlanetHandler {
                 .switchIfEmpty(ServerResponse.notFound().build());
     }
 
+    /**
+     * Deletes either every planet named exactly as the {@code name} query parameter, or the planets whose
+     * ids are given as a JSON array body, streaming one result per id.
+     */
+    public Mono<ServerResponse> deleteAll(ServerRequest request) {
+
+        Optional<String> name = request.queryParam("name");
+        if (name.isPresent()) {
+            if (name.get().isBlank()) {
+                return ServerResponse.badRequest().bodyValue("name must not be blank");
+            }
+            return this.streamDeleteResults(this.planetRepository.deleteAllByName(name.get()));
+        }
+
+        return request.bodyToMono(String[].class)
+                .switchIfEmpty(Mono.error(new IllegalArgumentException("Expected a name parameter or a JSON array of ids")))
+                .map(ids -> {
+                    if (Arrays.stream(ids).anyMatch(id -> id == null || id.isBlank())) {
+                        throw new IllegalArgumentException("ids must not be blank");
+                    }
+                    return ids;
+                })
+                .flatMap(ids -> this.streamDeleteResults(this.planetRepository.deleteAll(Flux.fromArray(ids))))
+                .onErrorResume(IllegalArgumentException.class, ex -> ServerResponse.badRequest().bodyValue(ex.getMessage()));
+    }
+
+    private Mono<ServerResponse> streamDeleteResults(Flux<BatchItemResult> results) {
+        return ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(BodyInserters.fromPublisher(this.streamMetrics.count("deleteAll", results), BatchItemResult.class));
+    }
+
+    /**
+     * Writes the items as a single JSON array, unless the client explicitly accepts NDJSON or
+     * Server-Sent Events, in which case every item is flushed as soon as it is emitted.
+     */
+    private <T> Mono<ServerResponse> stream(ServerRequest request, ServerResponse.BodyBuilder response, String route,
+                                            Flux<T> items, Class<T> itemType) {
+        return response
+                .contentType(this.negotiateStreamingType(request))
+                .body(BodyInserters.fromPublisher(this.streamMetrics.count(route, items), itemType));
+    }
+
+    private MediaType negotiateStreamingType(ServerRequest request) {
+        List<MediaType> acceptedTypes = new ArrayList<>(request.headers().accept());
+        MediaType.sortBySpecificityAndQuality(acceptedTypes);
+
+        for (MediaType acceptedType : acceptedTypes) {
+            for (MediaType streamingType : STREAMING_MEDIA_TYPES) {
+                if (acceptedType.equalsTypeAndSubtype(streamingType)) {
+                    return streamingType;
+                }
+            }
+            if (acceptedType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                break;
+            }
+        }
+        return MediaType.APPLICATION_JSON;
+    }
+
 }
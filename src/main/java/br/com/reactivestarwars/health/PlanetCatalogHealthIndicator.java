@@ -0,0 +1,26 @@
+package br.com.reactivestarwars.health;
+
+import br.com.reactivestarwars.repository.PlanetCatalog;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(name = "swapi.catalog.preload.enabled", havingValue = "true")
+public class PlanetCatalogHealthIndicator implements HealthIndicator {
+
+    private final PlanetCatalog planetCatalog;
+
+    public PlanetCatalogHealthIndicator(PlanetCatalog planetCatalog) {
+        this.planetCatalog = planetCatalog;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = this.planetCatalog.isLoaded() ? Health.up() : Health.down();
+        return builder
+                .withDetail("planets", this.planetCatalog.size())
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package br.com.reactivestarwars.health;
+
+import br.com.reactivestarwars.config.TableProvisioner;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+public class TableProvisioningHealthIndicator implements HealthIndicator {
+
+    private final TableProvisioner tableProvisioner;
+
+    public TableProvisioningHealthIndicator(TableProvisioner tableProvisioner) {
+        this.tableProvisioner = tableProvisioner;
+    }
+
+    @Override
+    public Health health() {
+        return this.tableProvisioner.isReady() ? Health.up().build() : Health.down().build();
+    }
+}
@@ -0,0 +1,57 @@
+package br.com.reactivestarwars.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every DynamoDB operation (putItem, getItem, scan, query, deleteItem, batchWriteItem...)
+ * as the dynamodb.requests timer, tagged by operation, table and outcome.
+ */
+public class DynamoDbMetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_TIME = new ExecutionAttribute<>("MetricsStartTime");
+
+    private final MeterRegistry meterRegistry;
+
+    public DynamoDbMetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_TIME, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        this.record(context.request().getValueForField("TableName", String.class).orElse("none"),
+                executionAttributes, "success");
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        this.record(context.request().getValueForField("TableName", String.class).orElse("none"),
+                executionAttributes, context.exception().getClass().getSimpleName());
+    }
+
+    private void record(String tableName, ExecutionAttributes executionAttributes, String outcome) {
+        Long startTime = executionAttributes.getAttribute(START_TIME);
+        if (startTime == null) {
+            return;
+        }
+
+        Timer.builder("dynamodb.requests")
+                .tag("operation", executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME))
+                .tag("table", tableName)
+                .tag("outcome", outcome)
+                .register(this.meterRegistry)
+                .record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,32 @@
+package br.com.reactivestarwars.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks how many requests are being served right now, including streaming responses still being written.
+ */
+@Component
+public class InFlightRequestsWebFilter implements WebFilter {
+
+    private final AtomicInteger inFlightRequests;
+
+    public InFlightRequestsWebFilter(MeterRegistry meterRegistry) {
+        this.inFlightRequests = meterRegistry.gauge("http.server.requests.active", new AtomicInteger());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return Mono.defer(() -> {
+            this.inFlightRequests.incrementAndGet();
+            return chain.filter(exchange)
+                    .doFinally(signal -> this.inFlightRequests.decrementAndGet());
+        });
+    }
+}
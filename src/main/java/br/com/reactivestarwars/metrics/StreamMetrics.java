@@ -0,0 +1,34 @@
+package br.com.reactivestarwars.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how many items each streaming response emitted, as the http.server.stream.items summary.
+ */
+@Component
+public class StreamMetrics {
+
+    private final MeterRegistry meterRegistry;
+
+    public StreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T> Flux<T> count(String route, Flux<T> items) {
+        DistributionSummary summary = DistributionSummary.builder("http.server.stream.items")
+                .tag("route", route)
+                .register(this.meterRegistry);
+
+        return Flux.defer(() -> {
+            AtomicLong count = new AtomicLong();
+            return items
+                    .doOnNext(item -> count.incrementAndGet())
+                    .doFinally(signal -> summary.record(count.get()));
+        });
+    }
+}
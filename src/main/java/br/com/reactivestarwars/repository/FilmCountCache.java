@@ -0,0 +1,83 @@
+package br.com.reactivestarwars.repository;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * In-process cache of SWAPI film counts, keyed by the case-folded planet name.
+ * <p>
+ * Concurrent lookups for the same name share a single in-flight remote call, and
+ * names without films are cached with their own (usually shorter) TTL.
+ */
+@Component
+public class FilmCountCache {
+
+    private final AsyncCache<String, Integer> cache;
+
+    public FilmCountCache(@Value("${swapi.filmCount.cache.ttl:1h}") Duration ttl,
+                          @Value("${swapi.filmCount.cache.negativeTtl:5m}") Duration negativeTtl,
+                          @Value("${swapi.filmCount.cache.maxSize:10000}") long maxSize,
+                          MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new FilmCountExpiry(ttl, negativeTtl))
+                .recordStats()
+                .buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache.synchronous(), "swapi.filmCount");
+    }
+
+    /**
+     * Film count of the planet, loaded on a miss by {@code loader}. The loader gets the trimmed name,
+     * so that whatever it resolves holds for every name sharing the cache key.
+     */
+    public Mono<Integer> get(String planetName, Function<String, Mono<Integer>> loader) {
+        String key = normalize(planetName);
+        String trimmedName = planetName == null ? null : planetName.trim();
+
+        // copy() so that a cancelled subscriber does not cancel the load shared with other callers
+        return Mono.fromFuture(() -> this.cache
+                .get(key, (__, executor) -> loader.apply(trimmedName).toFuture())
+                .copy());
+    }
+
+    static String normalize(String planetName) {
+        return planetName == null ? "" : planetName.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class FilmCountExpiry implements Expiry<String, Integer> {
+
+        private final long ttlNanos;
+        private final long negativeTtlNanos;
+
+        private FilmCountExpiry(Duration ttl, Duration negativeTtl) {
+            this.ttlNanos = ttl.toNanos();
+            this.negativeTtlNanos = negativeTtl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String key, Integer filmCount, long currentTime) {
+            return filmCount > 0 ? this.ttlNanos : this.negativeTtlNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Integer filmCount, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, filmCount, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Integer filmCount, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
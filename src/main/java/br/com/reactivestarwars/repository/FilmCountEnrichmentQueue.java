@@ -0,0 +1,280 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded in-process queue that backfills the film count of planets written without one.
+ * <p>
+ * Queued planets are drained in batches: each distinct name is resolved once through
+ * {@link PlanetRemoteRepository#getFilmCount}, then applied with an UpdateItem that only
+ * touches filmCount and bumps the version, provided the planet still has the name the count was
+ * resolved for. The enriched planet is published on the {@link PlanetChangeFeed}.
+ * Failed entries are re-queued with exponential backoff and, after
+ * planets.filmCount.queue.maxAttempts, kept in a bounded dead-letter list.
+ */
+@Slf4j
+@Component
+public class FilmCountEnrichmentQueue {
+
+    private final DynamoDbAsyncClient dbClient;
+    private final String tableName;
+    private final PlanetRemoteRepository planetRemoteRepository;
+    private final PlanetCache planetCache;
+    private final PlanetStatsRepository planetStats;
+    private final PlanetChangeFeed changeFeed;
+    private final TableSchema<Planet> tableSchema;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration window;
+    private final int concurrency;
+    private final int maxAttempts;
+    private final Duration retryBackoff;
+    private final int deadLetterSize;
+
+    private final Sinks.Many<Enrichment> queue;
+    private final Sinks.Many<Enrichment> retries = Sinks.many().unicast().onBackpressureBuffer();
+    private final AtomicInteger backlog = new AtomicInteger();
+    private final Deque<Enrichment> deadLetters = new ConcurrentLinkedDeque<>();
+    private final Counter deadLetterCounter;
+
+    private Disposable worker;
+
+    public FilmCountEnrichmentQueue(DynamoDbAsyncClient dbClient, DynamoDbAsyncTable<Planet> planetTable,
+                                    PlanetRemoteRepository planetRemoteRepository,
+                                    PlanetCache planetCache,
+                                    PlanetStatsRepository planetStats,
+                                    PlanetChangeFeed changeFeed,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${planets.filmCount.queue.capacity:10000}") int capacity,
+                                    @Value("${planets.filmCount.queue.batchSize:25}") int batchSize,
+                                    @Value("${planets.filmCount.queue.window:100ms}") Duration window,
+                                    @Value("${planets.filmCount.queue.concurrency:4}") int concurrency,
+                                    @Value("${planets.filmCount.queue.maxAttempts:5}") int maxAttempts,
+                                    @Value("${planets.filmCount.queue.retryBackoff:1s}") Duration retryBackoff,
+                                    @Value("${planets.filmCount.queue.deadLetterSize:1000}") int deadLetterSize) {
+        this.dbClient = dbClient;
+        this.tableName = planetTable.tableName();
+        this.planetRemoteRepository = planetRemoteRepository;
+        this.planetCache = planetCache;
+        this.planetStats = planetStats;
+        this.changeFeed = changeFeed;
+        this.tableSchema = planetTable.tableSchema();
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.window = window;
+        this.concurrency = concurrency;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoff = retryBackoff;
+        this.deadLetterSize = deadLetterSize;
+
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<Enrichment>get(capacity).get());
+
+        Gauge.builder("planets.filmCount.backlog", this.backlog, AtomicInteger::get)
+                .description("Planets waiting for their film count, including scheduled retries")
+                .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("planets.filmCount.deadLetters")
+                .description("Planets whose film count could not be resolved")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        // retries are delayed inside the worker, so that stopping it also cancels the pending ones
+        Flux<Enrichment> delayedRetries = this.retries.asFlux()
+                .flatMap(retry -> Mono.delay(this.backoff(retry)).thenReturn(retry), this.capacity);
+
+        this.worker = Flux.merge(this.queue.asFlux(), delayedRetries)
+                .bufferTimeout(this.batchSize, this.window)
+                .onBackpressureBuffer()
+                .concatMap(this::process)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.worker != null) {
+            this.worker.dispose();
+        }
+    }
+
+    /**
+     * Queues the planet for enrichment, or resolves and applies its film count right away when
+     * the queue is full. Completes with the planet once it has been queued or updated.
+     */
+    public Mono<Planet> enqueue(Planet planet) {
+        if (this.offer(planet)) {
+            return Mono.just(planet);
+        }
+
+        Enrichment enrichment = new Enrichment(planet.getId(), planet.getName(), 0);
+        return this.resolve(enrichment.getName())
+                .flatMap(filmCount -> this.update(enrichment, filmCount)
+                        .doOnSuccess(__ -> planet.setFilmCount(filmCount)))
+                .onErrorResume(ex -> {
+                    this.backlog.incrementAndGet();
+                    this.deadLetter(enrichment, ex);
+                    return Mono.empty();
+                })
+                .thenReturn(planet);
+    }
+
+    public int getBacklog() {
+        return this.backlog.get();
+    }
+
+    public List<Enrichment> getDeadLetters() {
+        return new ArrayList<>(this.deadLetters);
+    }
+
+    private synchronized boolean offer(Planet planet) {
+        if (this.backlog.get() >= this.capacity) {
+            return false;
+        }
+        if (this.queue.tryEmitNext(new Enrichment(planet.getId(), planet.getName(), 0)).isFailure()) {
+            return false;
+        }
+        this.backlog.incrementAndGet();
+        return true;
+    }
+
+    private synchronized boolean requeue(Enrichment enrichment) {
+        return this.retries.tryEmitNext(enrichment).isSuccess();
+    }
+
+    private Mono<Void> process(List<Enrichment> batch) {
+        Map<String, List<Enrichment>> byName = batch.stream()
+                .collect(Collectors.groupingBy(enrichment -> FilmCountCache.normalize(enrichment.getName())));
+
+        return Flux.fromIterable(byName.values())
+                .flatMap(group -> this.resolve(group.get(0).getName())
+                        .flatMapMany(filmCount -> Flux.fromIterable(group)
+                                .flatMap(enrichment -> this.update(enrichment, filmCount)
+                                        .doOnSuccess(__ -> this.backlog.decrementAndGet())
+                                        .onErrorResume(ex -> this.retryLater(enrichment, ex))))
+                        .onErrorResume(ex -> Flux.fromIterable(group)
+                                .flatMap(enrichment -> this.retryLater(enrichment, ex))), this.concurrency)
+                .then();
+    }
+
+    private Mono<Integer> resolve(String planetName) {
+        return this.planetRemoteRepository.getFilmCount(planetName)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException("Film count of " + planetName + " is unknown")));
+    }
+
+    private Mono<Void> update(Enrichment enrichment, int filmCount) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        values.put(":filmCount", AttributeValue.builder().n(Integer.toString(filmCount)).build());
+        values.put(":one", AttributeValue.builder().n("1").build());
+        String nameCondition;
+        if (enrichment.getName() == null) {
+            nameCondition = "attribute_not_exists(#name)";
+        } else {
+            nameCondition = "#name = :name";
+            values.put(":name", AttributeValue.builder().s(enrichment.getName()).build());
+        }
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(this.tableName)
+                .key(Map.of("id", AttributeValue.builder().s(enrichment.getId()).build()))
+                // the representation changes, so does the version and with it the ETag
+                .updateExpression("SET #filmCount = :filmCount ADD #version :one")
+                .conditionExpression("attribute_exists(#id) AND " + nameCondition
+                        + " AND (attribute_not_exists(#filmCount) OR #filmCount <> :filmCount)")
+                .expressionAttributeNames(Map.of("#id", "id", "#name", "name", "#filmCount", "filmCount",
+                        "#version", "version"))
+                .expressionAttributeValues(values)
+                // the old item gives both the previous count, for the statistics, and the enriched planet
+                .returnValues(ReturnValue.ALL_OLD)
+                .build();
+
+        return Mono.fromFuture(() -> this.dbClient.updateItem(request))
+                .doOnNext(response -> {
+                    Planet previous = this.tableSchema.mapToItem(response.attributes());
+                    Planet enriched = previous.copy();
+                    enriched.setFilmCount(filmCount);
+                    enriched.setVersion((previous.getVersion() == null ? 0L : previous.getVersion()) + 1);
+
+                    this.planetCache.put(enriched);
+                    this.changeFeed.updated(enriched);
+                    this.planetStats.recordFilmCountChange(previous.getFilmCount(), filmCount);
+                })
+                // deleted, renamed or already enriched: nothing left to update, a rename resolves its own count
+                .onErrorResume(ConditionalCheckFailedException.class, ex -> Mono.empty())
+                .then();
+    }
+
+    private Mono<Void> retryLater(Enrichment enrichment, Throwable error) {
+        Enrichment next = enrichment.nextAttempt();
+        if (next.getAttempt() >= this.maxAttempts) {
+            this.deadLetter(enrichment, error);
+            return Mono.empty();
+        }
+
+        if (!this.requeue(next)) {
+            this.deadLetter(next, error);
+        }
+        return Mono.empty();
+    }
+
+    private Duration backoff(Enrichment retry) {
+        return this.retryBackoff.multipliedBy(1L << Math.min(retry.getAttempt() - 1, 16));
+    }
+
+    private void deadLetter(Enrichment enrichment, Throwable error) {
+        log.warn("Giving up on the film count of planet {} ({}): {}", enrichment.getId(), enrichment.getName(),
+                Objects.toString(error.getMessage(), error.getClass().getSimpleName()));
+
+        this.deadLetters.addLast(enrichment);
+        while (this.deadLetters.size() > this.deadLetterSize) {
+            this.deadLetters.pollFirst();
+        }
+        this.deadLetterCounter.increment();
+        this.backlog.decrementAndGet();
+    }
+
+    @Data
+    public static class Enrichment {
+
+        private final String id;
+
+        private final String name;
+
+        private final int attempt;
+
+        Enrichment nextAttempt() {
+            return new Enrichment(this.id, this.name, this.attempt + 1);
+        }
+    }
+}
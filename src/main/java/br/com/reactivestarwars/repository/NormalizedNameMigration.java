@@ -0,0 +1,198 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.MigrationResult;
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetNames;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.CreateGlobalSecondaryIndexAction;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexDescription;
+import software.amazon.awssdk.services.dynamodb.model.GlobalSecondaryIndexUpdate;
+import software.amazon.awssdk.services.dynamodb.model.IndexStatus;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.Projection;
+import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughput;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.TableDescription;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateTableRequest;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Brings an existing planet table up to the normalized-name search: adds the
+ * {@link PlanetTableSchema#NORMALIZED_NAME_INDEX} when it is missing, waits for it to become
+ * ACTIVE, then backfills nameBucket/normalizedName in place on every item that lacks them.
+ * <p>
+ * The backfill is a parallel scan of planets.migration.totalSegments segments, updating at most
+ * planets.migration.concurrency items at once. Each update is conditioned on the name it was
+ * computed from, so a concurrent rename or delete is skipped instead of overwritten. Running it
+ * again only touches items that are still missing the attributes.
+ */
+@Slf4j
+@Component
+public class NormalizedNameMigration {
+
+    private static final Duration INDEX_POLL_INTERVAL = Duration.ofSeconds(5);
+    private static final int INDEX_MAX_POLLS = 720;
+
+    private final DynamoDbAsyncClient dbClient;
+    private final String tableName;
+    private final int totalSegments;
+    private final int concurrency;
+
+    public NormalizedNameMigration(DynamoDbAsyncClient dbClient, DynamoDbAsyncTable<Planet> planetTable,
+                                   @Value("${planets.migration.totalSegments:4}") int totalSegments,
+                                   @Value("${planets.migration.concurrency:8}") int concurrency) {
+        this.dbClient = dbClient;
+        this.tableName = planetTable.tableName();
+        this.totalSegments = totalSegments;
+        this.concurrency = concurrency;
+    }
+
+    public Mono<MigrationResult> run() {
+        return this.ensureIndex()
+                .then(this.backfill());
+    }
+
+    private Mono<Void> ensureIndex() {
+        return this.describeTable()
+                .flatMap(table -> this.findIndex(table).isPresent()
+                        ? Mono.<Void>empty()
+                        : this.createIndex(table))
+                .then(this.awaitIndexActive());
+    }
+
+    private Mono<TableDescription> describeTable() {
+        return Mono.fromFuture(() -> this.dbClient.describeTable(request -> request.tableName(this.tableName)))
+                .map(response -> response.table());
+    }
+
+    private Optional<GlobalSecondaryIndexDescription> findIndex(TableDescription table) {
+        return table.globalSecondaryIndexes().stream()
+                .filter(index -> PlanetTableSchema.NORMALIZED_NAME_INDEX.equals(index.indexName()))
+                .findFirst();
+    }
+
+    private Mono<Void> createIndex(TableDescription table) {
+        CreateGlobalSecondaryIndexAction.Builder index = CreateGlobalSecondaryIndexAction.builder()
+                .indexName(PlanetTableSchema.NORMALIZED_NAME_INDEX)
+                .keySchema(KeySchemaElement.builder().attributeName(PlanetTableSchema.NAME_BUCKET).keyType(KeyType.HASH).build(),
+                        KeySchemaElement.builder().attributeName(PlanetTableSchema.NORMALIZED_NAME).keyType(KeyType.RANGE).build())
+                .projection(Projection.builder().projectionType(ProjectionType.ALL).build());
+
+        // provisioned tables need a throughput for the new index, on-demand tables refuse one
+        boolean onDemand = table.billingModeSummary() != null
+                && table.billingModeSummary().billingMode() == BillingMode.PAY_PER_REQUEST;
+        if (!onDemand) {
+            index.provisionedThroughput(ProvisionedThroughput.builder()
+                    .readCapacityUnits(table.provisionedThroughput().readCapacityUnits())
+                    .writeCapacityUnits(table.provisionedThroughput().writeCapacityUnits())
+                    .build());
+        }
+
+        UpdateTableRequest request = UpdateTableRequest.builder()
+                .tableName(this.tableName)
+                .attributeDefinitions(
+                        AttributeDefinition.builder().attributeName(PlanetTableSchema.NAME_BUCKET).attributeType(ScalarAttributeType.S).build(),
+                        AttributeDefinition.builder().attributeName(PlanetTableSchema.NORMALIZED_NAME).attributeType(ScalarAttributeType.S).build())
+                .globalSecondaryIndexUpdates(GlobalSecondaryIndexUpdate.builder().create(index.build()).build())
+                .build();
+
+        log.info("Creating index {} on table {}", PlanetTableSchema.NORMALIZED_NAME_INDEX, this.tableName);
+        return Mono.fromFuture(() -> this.dbClient.updateTable(request)).then();
+    }
+
+    private Mono<Void> awaitIndexActive() {
+        return this.describeTable()
+                .filter(table -> this.findIndex(table)
+                        .filter(index -> index.indexStatus() == IndexStatus.ACTIVE)
+                        .isPresent())
+                .repeatWhenEmpty(INDEX_MAX_POLLS, polls -> polls.delayElements(INDEX_POLL_INTERVAL))
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                        "Index " + PlanetTableSchema.NORMALIZED_NAME_INDEX + " did not become active")))
+                .then();
+    }
+
+    private Mono<MigrationResult> backfill() {
+        AtomicLong scanned = new AtomicLong();
+        AtomicLong updated = new AtomicLong();
+        AtomicLong skipped = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        return Flux.range(0, this.totalSegments)
+                .flatMap(this::scanSegment, this.totalSegments)
+                .doOnNext(item -> scanned.incrementAndGet())
+                .flatMap(item -> this.update(item)
+                        .doOnNext(done -> (done ? updated : skipped).incrementAndGet())
+                        .onErrorResume(ConditionalCheckFailedException.class, ex -> {
+                            skipped.incrementAndGet();
+                            return Mono.empty();
+                        })
+                        .onErrorResume(ex -> {
+                            log.warn("Failed to backfill the normalized name of planet {}", item.get("id").s(), ex);
+                            failed.incrementAndGet();
+                            return Mono.empty();
+                        }), this.concurrency)
+                .then(Mono.fromCallable(() -> new MigrationResult(scanned.get(), updated.get(), skipped.get(), failed.get())))
+                .doOnNext(result -> log.info("Normalized name backfill of table {} done: {}", this.tableName, result));
+    }
+
+    private Flux<Map<String, AttributeValue>> scanSegment(int segment) {
+        ScanRequest request = ScanRequest.builder()
+                .tableName(this.tableName)
+                .segment(segment)
+                .totalSegments(this.totalSegments)
+                .filterExpression("attribute_exists(#name) AND attribute_not_exists(#normalizedName)")
+                .projectionExpression("#id, #name")
+                .expressionAttributeNames(Map.of("#id", "id", "#name", "name",
+                        "#normalizedName", PlanetTableSchema.NORMALIZED_NAME))
+                .build();
+
+        return Flux.from(this.dbClient.scanPaginator(request))
+                .flatMapIterable(ScanResponse::items);
+    }
+
+    /**
+     * Emits whether the item was updated, false when its name leaves nothing to index.
+     */
+    private Mono<Boolean> update(Map<String, AttributeValue> item) {
+        AttributeValue name = item.get("name");
+        String normalizedName = PlanetNames.normalize(name.s());
+        if (normalizedName == null) {
+            return Mono.just(false);
+        }
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(this.tableName)
+                .key(Map.of("id", item.get("id")))
+                .updateExpression("SET #nameBucket = :nameBucket, #normalizedName = :normalizedName")
+                .conditionExpression("#name = :name")
+                .expressionAttributeNames(Map.of("#name", "name",
+                        "#nameBucket", PlanetTableSchema.NAME_BUCKET,
+                        "#normalizedName", PlanetTableSchema.NORMALIZED_NAME))
+                .expressionAttributeValues(Map.of(":name", name,
+                        ":nameBucket", AttributeValue.builder().s(PlanetNames.bucket(normalizedName)).build(),
+                        ":normalizedName", AttributeValue.builder().s(normalizedName).build()))
+                .build();
+
+        return Mono.fromFuture(() -> this.dbClient.updateItem(request)).thenReturn(true);
+    }
+}
@@ -0,0 +1,66 @@
+package br.com.reactivestarwars.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Opaque, URL-safe encoding of a DynamoDB LastEvaluatedKey. Only string key attributes are supported,
+ * which covers the planet table and all of its indexes.
+ */
+final class PageCursor {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, String>> KEY_TYPE = new TypeReference<>() {
+    };
+
+    private PageCursor() {
+    }
+
+    static String encode(Map<String, AttributeValue> lastEvaluatedKey) {
+        if (lastEvaluatedKey == null || lastEvaluatedKey.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> key = lastEvaluatedKey.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().s(), (a, b) -> a, TreeMap::new));
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(key));
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to encode page cursor", ex);
+        }
+    }
+
+    /**
+     * Decodes a cursor that must carry exactly {@code keyAttributes}, the key attributes of the table
+     * or index it is used with: DynamoDB rejects any other ExclusiveStartKey.
+     */
+    static Map<String, AttributeValue> decode(String cursor, Set<String> keyAttributes) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+
+        Map<String, String> key;
+        try {
+            key = MAPPER.readValue(Base64.getUrlDecoder().decode(cursor), KEY_TYPE);
+        } catch (IOException | RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid page cursor", ex);
+        }
+        if (key == null || !key.keySet().equals(keyAttributes)
+                || key.values().stream().anyMatch(value -> value == null || value.isEmpty())) {
+            throw new IllegalArgumentException("Invalid page cursor");
+        }
+
+        return Collections.unmodifiableMap(key.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> AttributeValue.builder().s(entry.getValue()).build())));
+    }
+}
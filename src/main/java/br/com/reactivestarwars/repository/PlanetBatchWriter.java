@@ -0,0 +1,123 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchGetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.BatchWriteResult;
+import software.amazon.awssdk.enhanced.dynamodb.model.ReadBatch;
+import software.amazon.awssdk.enhanced.dynamodb.model.WriteBatch;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes planets through DynamoDB BatchWriteItem, retrying unprocessed items with jittered exponential backoff.
+ * Key lookups go through BatchGetItem, whose unprocessed keys are re-requested by the SDK paginator.
+ */
+@Component
+public class PlanetBatchWriter {
+
+    public static final int MAX_BATCH_SIZE = 25;
+
+    private final DynamoDbEnhancedAsyncClient enhancedDbClient;
+    private final DynamoDbAsyncTable<Planet> planetTable;
+    private final int maxRetries;
+    private final Duration backoff;
+
+    public PlanetBatchWriter(DynamoDbEnhancedAsyncClient enhancedDbClient,
+                             DynamoDbAsyncTable<Planet> planetTable,
+                             @Value("${dynamodb.batch.maxRetries:8}") int maxRetries,
+                             @Value("${dynamodb.batch.backoff:50ms}") Duration backoff) {
+        this.enhancedDbClient = enhancedDbClient;
+        this.planetTable = planetTable;
+        this.maxRetries = maxRetries;
+        this.backoff = backoff;
+    }
+
+    /**
+     * Puts up to {@link #MAX_BATCH_SIZE} planets, emitting the ones still unprocessed once retries are exhausted.
+     */
+    public Mono<List<Planet>> putAll(List<Planet> planets) {
+        return this.write(planets,
+                (batch, planet) -> batch.addPutItem(request -> request.item(planet)),
+                result -> result.unprocessedPutItemsForTable(this.planetTable),
+                0);
+    }
+
+    /**
+     * Deletes up to {@link #MAX_BATCH_SIZE} planets by id, emitting the ids still unprocessed once retries are exhausted.
+     */
+    public Mono<List<String>> deleteAll(List<String> ids) {
+        return this.write(ids,
+                (batch, id) -> batch.addDeleteItem(request -> request.key(key(id))),
+                result -> result.unprocessedDeleteItemsForTable(this.planetTable).stream()
+                        .map(key -> key.partitionKeyValue().s())
+                        .collect(Collectors.toList()),
+                0);
+    }
+
+    /**
+     * Emits the planets stored under the given distinct ids, at most 100, keyed by id.
+     */
+    public Mono<Map<String, Planet>> findAll(List<String> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(Collections.emptyMap());
+        }
+
+        ReadBatch.Builder<Planet> batch = ReadBatch.builder(Planet.class)
+                .mappedTableResource(this.planetTable);
+        ids.forEach(id -> batch.addGetItem(request -> request.key(key(id))));
+
+        BatchGetItemEnhancedRequest request = BatchGetItemEnhancedRequest.builder()
+                .readBatches(batch.build())
+                .build();
+
+        return Flux.defer(() -> this.enhancedDbClient.batchGetItem(request))
+                .flatMapIterable(page -> page.resultsForTable(this.planetTable))
+                .collectMap(Planet::getId);
+    }
+
+    private static Key key(String id) {
+        return Key.builder().partitionValue(id).build();
+    }
+
+    private <T> Mono<List<T>> write(List<T> pending, BiConsumer<WriteBatch.Builder<Planet>, T> addRequest,
+                                    Function<BatchWriteResult, List<T>> unprocessed, int attempt) {
+        if (pending.isEmpty()) {
+            return Mono.just(Collections.emptyList());
+        }
+
+        WriteBatch.Builder<Planet> batch = WriteBatch.builder(Planet.class)
+                .mappedTableResource(this.planetTable);
+        pending.forEach(item -> addRequest.accept(batch, item));
+
+        BatchWriteItemEnhancedRequest request = BatchWriteItemEnhancedRequest.builder()
+                .writeBatches(batch.build())
+                .build();
+
+        return Mono.fromFuture(() -> this.enhancedDbClient.batchWriteItem(request))
+                .map(unprocessed)
+                .flatMap(remaining -> remaining.isEmpty() || attempt >= this.maxRetries
+                        ? Mono.just(remaining)
+                        : Mono.delay(this.backoffFor(attempt))
+                        .then(Mono.defer(() -> this.write(remaining, addRequest, unprocessed, attempt + 1))));
+    }
+
+    private Duration backoffFor(int attempt) {
+        long ceiling = this.backoff.toMillis() << Math.min(attempt, 10);
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(ceiling + 1));
+    }
+}
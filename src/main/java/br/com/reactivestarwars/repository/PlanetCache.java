@@ -0,0 +1,57 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of planets by id. Concurrent misses for the same id share a single load,
+ * and missing planets are never cached.
+ * <p>
+ * Entries expire after planets.cache.ttl (0s keeps them until evicted), which bounds how long writes
+ * made by other instances go unseen. Callers get their own copy of the cached planet.
+ */
+@Component
+public class PlanetCache {
+
+    private final AsyncCache<String, Planet> cache;
+
+    public PlanetCache(@Value("${planets.cache.maxSize:10000}") long maxSize,
+                       @Value("${planets.cache.ttl:5s}") Duration ttl,
+                       MeterRegistry meterRegistry) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats();
+        if (!ttl.isZero()) {
+            builder.expireAfterWrite(ttl);
+        }
+        this.cache = builder.buildAsync();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache.synchronous(), "planets.byId");
+    }
+
+    public Mono<Planet> get(String id, Function<String, Mono<Planet>> loader) {
+        // copy() so that a cancelled subscriber does not cancel the load shared with other callers
+        return Mono.fromFuture(() -> this.cache
+                .get(id, (key, executor) -> loader.apply(key).toFuture())
+                .copy())
+                .map(Planet::copy);
+    }
+
+    public void put(Planet planet) {
+        this.cache.put(planet.getId(), CompletableFuture.completedFuture(planet.copy()));
+    }
+
+    public void invalidate(String id) {
+        this.cache.synchronous().invalidate(id);
+    }
+}
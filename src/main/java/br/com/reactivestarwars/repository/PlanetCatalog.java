@@ -0,0 +1,47 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable, case-insensitive index of the SWAPI planet catalog, swapped atomically on every reload.
+ * Stays empty unless {@link PlanetCatalogLoader} is enabled.
+ */
+@Component
+public class PlanetCatalog {
+
+    private final AtomicReference<Map<String, Integer>> filmCounts = new AtomicReference<>();
+
+    public Optional<Integer> getFilmCount(String planetName) {
+        Map<String, Integer> index = this.filmCounts.get();
+        if (index == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(index.get(FilmCountCache.normalize(planetName)));
+    }
+
+    public void replace(Collection<Planet> planets) {
+        Map<String, Integer> index = planets.stream()
+                .filter(planet -> planet.getName() != null && planet.getFilmCount() != null)
+                .collect(Collectors.toUnmodifiableMap(
+                        planet -> FilmCountCache.normalize(planet.getName()),
+                        Planet::getFilmCount,
+                        (first, second) -> first));
+        this.filmCounts.set(index);
+    }
+
+    public boolean isLoaded() {
+        return this.filmCounts.get() != null;
+    }
+
+    public int size() {
+        Map<String, Integer> index = this.filmCounts.get();
+        return index == null ? 0 : index.size();
+    }
+}
@@ -0,0 +1,81 @@
+package br.com.reactivestarwars.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Walks every SWAPI planet page on startup and periodically afterwards, refreshing the {@link PlanetCatalog}.
+ */
+@Component
+@Slf4j
+@ConditionalOnProperty(name = "swapi.catalog.preload.enabled", havingValue = "true")
+public class PlanetCatalogLoader {
+
+    private final PlanetRemoteRepository planetRemoteRepository;
+    private final PlanetCatalog planetCatalog;
+    private final int concurrency;
+    private final Duration refreshInterval;
+
+    private Disposable refresh;
+
+    public PlanetCatalogLoader(PlanetRemoteRepository planetRemoteRepository,
+                               PlanetCatalog planetCatalog,
+                               @Value("${swapi.catalog.preload.concurrency:4}") int concurrency,
+                               @Value("${swapi.catalog.preload.refreshInterval:6h}") Duration refreshInterval) {
+        this.planetRemoteRepository = planetRemoteRepository;
+        this.planetCatalog = planetCatalog;
+        this.concurrency = concurrency;
+        this.refreshInterval = refreshInterval;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.refresh = Flux.interval(Duration.ZERO, this.refreshInterval)
+                .onBackpressureDrop()
+                .concatMap(tick -> this.load()
+                        .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1))
+                                .maxBackoff(Duration.ofMinutes(1))
+                                .filter(ex -> !this.planetCatalog.isLoaded()))
+                        .onErrorResume(ex -> {
+                            log.warn("Failed to refresh the SWAPI planet catalog", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.refresh != null) {
+            this.refresh.dispose();
+        }
+    }
+
+    public Mono<Void> load() {
+        return this.planetRemoteRepository.getPlanetPage(1)
+                .flatMapMany(firstPage -> {
+                    int pageSize = Math.max(firstPage.getPlanets().size(), 1);
+                    int pageCount = (firstPage.getCount() + pageSize - 1) / pageSize;
+
+                    return Flux.range(2, Math.max(pageCount - 1, 0))
+                            .flatMap(this.planetRemoteRepository::getPlanets, this.concurrency)
+                            .startWith(firstPage.getPlanets());
+                })
+                .collectList()
+                .doOnNext(planets -> {
+                    this.planetCatalog.replace(planets);
+                    log.info("Loaded {} planets into the SWAPI planet catalog", this.planetCatalog.size());
+                })
+                .then();
+    }
+}
@@ -0,0 +1,116 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetChange;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Instant;
+
+/**
+ * In-process feed of planet mutations. The last planets.changes.replaySize changes are replayed to
+ * consumers resuming from a sequence number; older positions get a {@link PlanetChange.Type#RESYNC}.
+ * <p>
+ * Every subscriber has its own buffer of planets.changes.subscriberBuffer changes, so a slow consumer
+ * never holds back publishers or other consumers. When it overflows, the subscriber either loses its
+ * oldest buffered changes or is disconnected, depending on its {@link SlowConsumerPolicy}.
+ */
+@Component
+public class PlanetChangeFeed {
+
+    public enum SlowConsumerPolicy {
+        DROP_OLDEST,
+        DISCONNECT
+    }
+
+    private final Sinks.Many<PlanetChange> sink;
+    private final int replaySize;
+    private final int subscriberBuffer;
+    private final Counter dropped;
+    private final Counter disconnected;
+
+    // starts from the clock so that positions held by consumers stay meaningful after a restart
+    private long sequence = System.currentTimeMillis() * 1000;
+    private long oldestReplayable = this.sequence + 1;
+    private long published;
+
+    public PlanetChangeFeed(MeterRegistry meterRegistry,
+                            @Value("${planets.changes.replaySize:1000}") int replaySize,
+                            @Value("${planets.changes.subscriberBuffer:256}") int subscriberBuffer) {
+        this.replaySize = replaySize;
+        this.subscriberBuffer = subscriberBuffer;
+        this.sink = Sinks.many().replay().limit(replaySize);
+
+        Gauge.builder("planets.changes.subscribers", this.sink, Sinks.Many::currentSubscriberCount)
+                .description("Consumers of the planet change feed")
+                .register(meterRegistry);
+        this.dropped = Counter.builder("planets.changes.dropped")
+                .description("Changes dropped from the buffer of a slow consumer")
+                .register(meterRegistry);
+        this.disconnected = Counter.builder("planets.changes.disconnected")
+                .description("Slow consumers disconnected from the change feed")
+                .register(meterRegistry);
+    }
+
+    public void created(Planet planet) {
+        this.publish(PlanetChange.Type.CREATED, planet.getId(), planet);
+    }
+
+    public void updated(Planet planet) {
+        this.publish(PlanetChange.Type.UPDATED, planet.getId(), planet);
+    }
+
+    public void deleted(Planet planet) {
+        this.publish(PlanetChange.Type.DELETED, planet.getId(), planet);
+    }
+
+    private synchronized void publish(PlanetChange.Type type, String id, Planet planet) {
+        this.sequence++;
+        this.published++;
+        if (this.published > this.replaySize) {
+            this.oldestReplayable++;
+        }
+        this.sink.tryEmitNext(new PlanetChange(this.sequence, type, id, planet, Instant.now()));
+    }
+
+    /**
+     * Streams changes published after {@code lastSequence}, or only the changes to come when it is null.
+     */
+    public Flux<PlanetChange> changes(Long lastSequence, SlowConsumerPolicy policy) {
+        return Flux.defer(() -> {
+            long after;
+            boolean lost;
+            synchronized (this) {
+                lost = lastSequence != null && (lastSequence < this.oldestReplayable - 1 || lastSequence > this.sequence);
+                if (lastSequence == null) {
+                    after = this.sequence;
+                } else {
+                    after = lost ? this.oldestReplayable - 1 : lastSequence;
+                }
+            }
+
+            Flux<PlanetChange> changes = this.sink.asFlux()
+                    .filter(change -> change.getSequence() > after);
+            if (lost) {
+                // positioned right before the replayed changes, so a reconnect resumes without another resync
+                changes = changes.startWith(new PlanetChange(after, PlanetChange.Type.RESYNC, null, null, Instant.now()));
+            }
+            return this.limit(changes, policy);
+        });
+    }
+
+    private Flux<PlanetChange> limit(Flux<PlanetChange> changes, SlowConsumerPolicy policy) {
+        if (policy == SlowConsumerPolicy.DISCONNECT) {
+            return changes.onBackpressureBuffer(this.subscriberBuffer, change -> this.disconnected.increment(),
+                    BufferOverflowStrategy.ERROR);
+        }
+        return changes.onBackpressureBuffer(this.subscriberBuffer, change -> this.dropped.increment(),
+                BufferOverflowStrategy.DROP_OLDEST);
+    }
+}
@@ -0,0 +1,364 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.IdempotencyRecord;
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import br.com.reactivestarwars.exception.IdempotencyKeyInProgressException;
+import br.com.reactivestarwars.exception.IdempotencyKeyReusedException;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.TimeToLiveStatus;
+
+import javax.annotation.PreDestroy;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+
+/**
+ * Idempotency-Key store of POST /planets, backed by the PlanetIdempotency table and fronted by an
+ * in-memory LRU of completed keys.
+ * <p>
+ * A key is reserved with a conditional put before the planet is created, so at most one request per
+ * key creates a planet, across instances. Completed keys keep the created planet, which later requests
+ * with the same key get back without calling SWAPI or writing again. Records expire through DynamoDB
+ * TTL after planets.idempotency.ttl; a key left in progress for longer than
+ * planets.idempotency.inProgressTimeout, e.g. by a crashed or disconnected request, may be taken over.
+ * The reservation fixes the planet id, and a takeover creates the planet under that same id, so a
+ * planet the interrupted request already wrote is found rather than created twice.
+ */
+@Slf4j
+@Component
+public class PlanetIdempotencyRepository {
+
+    static final String TABLE_NAME = "PlanetIdempotency";
+
+    private static final String KEY = "key";
+    private static final String STATUS = "status";
+    private static final String REQUEST_HASH = "requestHash";
+    private static final String PLANET_ID = "planetId";
+    private static final String PLANET = "planet";
+    private static final String RESERVED_AT = "reservedAt";
+    private static final String EXPIRES_AT = "expiresAt";
+
+    /**
+     * Only the key is mapped: records are read and written with the low-level client, since the
+     * reservation needs a condition expression and the planet is nested with {@link PlanetTableSchema}.
+     */
+    private static final TableSchema<IdempotencyRecord> KEY_SCHEMA = StaticTableSchema.builder(IdempotencyRecord.class)
+            .newItemSupplier(IdempotencyRecord::new)
+            .addAttribute(String.class, attribute -> attribute.name(KEY)
+                    .getter(IdempotencyRecord::getKey)
+                    .setter(IdempotencyRecord::setKey)
+                    .tags(primaryPartitionKey()))
+            .build();
+
+    private final DynamoDbAsyncClient dbClient;
+    private final TableProvisioner tableProvisioner;
+    private final Cache<String, IdempotencyRecord> completed;
+    private final Duration ttl;
+    private final Duration inProgressTimeout;
+
+    private Disposable timeToLive;
+
+    public PlanetIdempotencyRepository(DynamoDbAsyncClient dbClient, DynamoDbEnhancedAsyncClient enhancedDbClient,
+                                       TableProvisioner tableProvisioner, MeterRegistry meterRegistry,
+                                       @Value("${planets.idempotency.ttl:24h}") Duration ttl,
+                                       @Value("${planets.idempotency.inProgressTimeout:1m}") Duration inProgressTimeout,
+                                       @Value("${planets.idempotency.cache.maxSize:10000}") long cacheMaxSize) {
+        this.dbClient = dbClient;
+        this.tableProvisioner = tableProvisioner;
+        this.ttl = ttl;
+        this.inProgressTimeout = inProgressTimeout;
+        this.completed = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, this.completed, "planets.idempotency");
+
+        DynamoDbAsyncTable<IdempotencyRecord> table = enhancedDbClient.table(TABLE_NAME, KEY_SCHEMA);
+        tableProvisioner.register(table, builder -> {
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.timeToLive = this.tableProvisioner.ready()
+                .then(this.enableTimeToLive())
+                .subscribe(null, ex -> log.warn("Failed to enable TTL on table {}, expired keys will not be removed",
+                        TABLE_NAME, ex));
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.timeToLive != null) {
+            this.timeToLive.dispose();
+        }
+    }
+
+    /**
+     * Runs {@code create} with the planet id reserved for {@code key}, unless the key was already used:
+     * emits the planet created now, or the one created by the first request with this key. Errors with
+     * {@link IdempotencyKeyReusedException} if the key was used with another request, and
+     * {@link IdempotencyKeyInProgressException} while that first request is still running. A failed
+     * creation releases the key so the client can retry.
+     * <p>
+     * {@code create} must not overwrite an existing planet: when the id already exists it emits that
+     * planet, which happens when a stale reservation is taken over.
+     */
+    public Mono<Outcome> execute(String key, String requestHash, Function<String, Mono<Planet>> create) {
+        IdempotencyRecord cached = this.completed.getIfPresent(key);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+
+        return this.reserve(key, requestHash, null)
+                .flatMap(reservation -> this.create(reservation, create))
+                .switchIfEmpty(Mono.defer(() -> this.find(key)
+                        .flatMap(existing -> this.existing(existing, requestHash, create))
+                        .switchIfEmpty(Mono.error(IdempotencyKeyInProgressException::new))));
+    }
+
+    private Mono<Outcome> create(IdempotencyRecord reservation, Function<String, Mono<Planet>> create) {
+        return create.apply(reservation.getPlanetId())
+                .onErrorResume(ex -> this.release(reservation).then(Mono.<Planet>error(ex)))
+                .flatMap(planet -> this.complete(reservation, planet)
+                        .thenReturn(new Outcome(planet, false)));
+    }
+
+    /**
+     * Fingerprint of the attributes a client sends when creating a planet; the server assigns the rest.
+     */
+    public static String fingerprint(Planet planet) {
+        String canonical = String.join("\u0000",
+                Objects.toString(planet.getName(), ""),
+                Objects.toString(planet.getClimate(), ""),
+                Objects.toString(planet.getTerrain(), ""));
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(canonical.getBytes(StandardCharsets.UTF_8));
+            return String.format("%064x", new BigInteger(1, digest));
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("SHA-256 is not available", ex);
+        }
+    }
+
+    /**
+     * Emits the reservation, or nothing if the key is held by a live record. With {@code stale}, takes
+     * over that stale reservation and keeps its planet id, provided nobody took it over first.
+     */
+    private Mono<IdempotencyRecord> reserve(String key, String requestHash, IdempotencyRecord stale) {
+        long now = System.currentTimeMillis();
+        String planetId = stale != null && stale.getPlanetId() != null ? stale.getPlanetId() : UUID.randomUUID().toString();
+        IdempotencyRecord reservation = new IdempotencyRecord(key, IdempotencyRecord.Status.IN_PROGRESS, requestHash,
+                planetId, null, now, (now + this.ttl.toMillis()) / 1000);
+
+        PutItemRequest.Builder request = PutItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .item(toItem(reservation));
+        if (stale == null) {
+            request.conditionExpression("attribute_not_exists(#key) OR #expiresAt < :now")
+                    .expressionAttributeNames(Map.of("#key", KEY, "#expiresAt", EXPIRES_AT))
+                    .expressionAttributeValues(Map.of(":now", number(now / 1000)));
+        } else {
+            request.conditionExpression("#status = :inProgress AND #reservedAt = :staleReservedAt")
+                    .expressionAttributeNames(Map.of("#status", STATUS, "#reservedAt", RESERVED_AT))
+                    .expressionAttributeValues(Map.of(
+                            ":inProgress", string(IdempotencyRecord.Status.IN_PROGRESS.name()),
+                            ":staleReservedAt", number(stale.getReservedAt())));
+        }
+
+        return Mono.fromFuture(() -> this.dbClient.putItem(request.build()))
+                .thenReturn(reservation)
+                .onErrorResume(ConditionalCheckFailedException.class, ex -> Mono.empty());
+    }
+
+    /**
+     * Stores the created planet under the key, unless another request took the key over meanwhile: the
+     * key then belongs to that request and this planet is not replayed. Any other failure does not undo
+     * the creation either: the key stays in progress until it is taken over, and this instance still
+     * replays it from the cache.
+     */
+    private Mono<Void> complete(IdempotencyRecord reservation, Planet planet) {
+        IdempotencyRecord record = new IdempotencyRecord(reservation.getKey(), IdempotencyRecord.Status.COMPLETED,
+                reservation.getRequestHash(), reservation.getPlanetId(), planet, reservation.getReservedAt(),
+                reservation.getExpiresAt());
+
+        PutItemRequest request = PutItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .item(toItem(record))
+                .conditionExpression("#status = :inProgress AND #reservedAt = :reservedAt")
+                .expressionAttributeNames(Map.of("#status", STATUS, "#reservedAt", RESERVED_AT))
+                .expressionAttributeValues(Map.of(
+                        ":inProgress", string(IdempotencyRecord.Status.IN_PROGRESS.name()),
+                        ":reservedAt", number(reservation.getReservedAt())))
+                .build();
+
+        return Mono.fromFuture(() -> this.dbClient.putItem(request))
+                .doOnSuccess(__ -> this.completed.put(record.getKey(), record))
+                .then()
+                .onErrorResume(ConditionalCheckFailedException.class, ex -> {
+                    log.warn("Idempotency-Key {} was taken over before planet {} was recorded", record.getKey(),
+                            planet.getId());
+                    return Mono.empty();
+                })
+                .onErrorResume(ex -> {
+                    log.warn("Failed to complete Idempotency-Key {}", record.getKey(), ex);
+                    this.completed.put(record.getKey(), record);
+                    return Mono.empty();
+                });
+    }
+
+    /**
+     * Deletes the reservation, unless another request took it over meanwhile.
+     */
+    private Mono<Void> release(IdempotencyRecord reservation) {
+        DeleteItemRequest request = DeleteItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of(KEY, string(reservation.getKey())))
+                .conditionExpression("#status = :inProgress AND #reservedAt = :reservedAt")
+                .expressionAttributeNames(Map.of("#status", STATUS, "#reservedAt", RESERVED_AT))
+                .expressionAttributeValues(Map.of(
+                        ":inProgress", string(IdempotencyRecord.Status.IN_PROGRESS.name()),
+                        ":reservedAt", number(reservation.getReservedAt())))
+                .build();
+
+        return Mono.fromFuture(() -> this.dbClient.deleteItem(request))
+                .then()
+                .onErrorResume(ex -> {
+                    log.warn("Failed to release Idempotency-Key {}", reservation.getKey(), ex);
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<IdempotencyRecord> find(String key) {
+        GetItemRequest request = GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of(KEY, string(key)))
+                .consistentRead(true)
+                .build();
+
+        return Mono.fromFuture(() -> this.dbClient.getItem(request))
+                .filter(response -> response.hasItem() && !response.item().isEmpty())
+                .map(response -> fromItem(response.item()));
+    }
+
+    private Mono<Outcome> existing(IdempotencyRecord record, String requestHash, Function<String, Mono<Planet>> create) {
+        if (record.getStatus() == IdempotencyRecord.Status.COMPLETED && record.getPlanet() != null) {
+            this.completed.put(record.getKey(), record);
+            return replay(record, requestHash);
+        }
+        if (!Objects.equals(record.getRequestHash(), requestHash)) {
+            return Mono.error(new IdempotencyKeyReusedException());
+        }
+        if (record.getReservedAt() < System.currentTimeMillis() - this.inProgressTimeout.toMillis()) {
+            return this.reserve(record.getKey(), requestHash, record)
+                    .flatMap(reservation -> this.create(reservation, create))
+                    .switchIfEmpty(Mono.error(IdempotencyKeyInProgressException::new));
+        }
+        return Mono.error(new IdempotencyKeyInProgressException());
+    }
+
+    private static Mono<Outcome> replay(IdempotencyRecord record, String requestHash) {
+        if (!Objects.equals(record.getRequestHash(), requestHash)) {
+            return Mono.error(new IdempotencyKeyReusedException());
+        }
+        return Mono.just(new Outcome(record.getPlanet(), true));
+    }
+
+    private Mono<Void> enableTimeToLive() {
+        return Mono.fromFuture(() -> this.dbClient.describeTimeToLive(request -> request.tableName(TABLE_NAME)))
+                .map(response -> response.timeToLiveDescription().timeToLiveStatus())
+                .filter(status -> status == TimeToLiveStatus.DISABLED)
+                .flatMap(__ -> Mono.fromFuture(() -> this.dbClient.updateTimeToLive(request -> request
+                        .tableName(TABLE_NAME)
+                        .timeToLiveSpecification(specification -> specification
+                                .attributeName(EXPIRES_AT)
+                                .enabled(true)))))
+                .doOnNext(__ -> log.info("Enabled TTL on table {}", TABLE_NAME))
+                .then();
+    }
+
+    private static Map<String, AttributeValue> toItem(IdempotencyRecord record) {
+        Map<String, AttributeValue> item = new HashMap<>();
+        item.put(KEY, string(record.getKey()));
+        item.put(STATUS, string(record.getStatus().name()));
+        item.put(REQUEST_HASH, string(record.getRequestHash()));
+        if (record.getPlanetId() != null) {
+            item.put(PLANET_ID, string(record.getPlanetId()));
+        }
+        item.put(RESERVED_AT, number(record.getReservedAt()));
+        item.put(EXPIRES_AT, number(record.getExpiresAt()));
+        if (record.getPlanet() != null) {
+            item.put(PLANET, AttributeValue.builder()
+                    .m(PlanetTableSchema.INSTANCE.itemToMap(record.getPlanet(), true))
+                    .build());
+        }
+        return item;
+    }
+
+    private static IdempotencyRecord fromItem(Map<String, AttributeValue> item) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setKey(item.get(KEY).s());
+        record.setStatus(IdempotencyRecord.Status.valueOf(item.get(STATUS).s()));
+        record.setRequestHash(item.get(REQUEST_HASH).s());
+        if (item.containsKey(PLANET_ID)) {
+            record.setPlanetId(item.get(PLANET_ID).s());
+        }
+        record.setReservedAt(Long.valueOf(item.get(RESERVED_AT).n()));
+        record.setExpiresAt(Long.valueOf(item.get(EXPIRES_AT).n()));
+        if (item.containsKey(PLANET)) {
+            record.setPlanet(PlanetTableSchema.INSTANCE.mapToItem(item.get(PLANET).m()));
+        }
+        return record;
+    }
+
+    private static AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue number(long value) {
+        return AttributeValue.builder().n(Long.toString(value)).build();
+    }
+
+    /**
+     * The planet to answer with, and whether it was created by an earlier request with the same key.
+     */
+    @Data
+    public static class Outcome {
+
+        private final Planet planet;
+
+        private final boolean replayed;
+    }
+}
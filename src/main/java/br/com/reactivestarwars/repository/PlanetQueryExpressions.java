@@ -0,0 +1,137 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.PlanetNames;
+import br.com.reactivestarwars.domain.PlanetQuery;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * DynamoDB key condition, filter and projection expressions of a {@link PlanetQuery}. Name searches
+ * become key conditions on the normalized-name index. Every attribute is referenced through an
+ * expression name, since "name" is a reserved word.
+ */
+final class PlanetQueryExpressions {
+
+    private final Map<String, String> names = new HashMap<>();
+    private final Map<String, AttributeValue> values = new HashMap<>();
+    private final List<String> filters = new ArrayList<>();
+    private String keyCondition;
+    private String nameBucket;
+    private String normalizedName;
+    private boolean namePrefix;
+    private String projection;
+
+    private PlanetQueryExpressions() {
+    }
+
+    static PlanetQueryExpressions of(PlanetQuery query) {
+        PlanetQueryExpressions expressions = new PlanetQueryExpressions();
+
+        String normalizedName = PlanetNames.normalize(query.getName());
+        String normalizedPrefix = PlanetNames.normalize(query.getNamePrefix());
+        if (normalizedName != null || normalizedPrefix != null) {
+            String normalized = normalizedName != null ? normalizedName : normalizedPrefix;
+            expressions.nameBucket = PlanetNames.bucket(normalized);
+            expressions.normalizedName = normalized;
+            expressions.namePrefix = normalizedName == null;
+            String bucketCondition = expressions.name(PlanetTableSchema.NAME_BUCKET) + " = "
+                    + expressions.value("nameBucket", string(expressions.nameBucket));
+            String name = expressions.name(PlanetTableSchema.NORMALIZED_NAME);
+            String value = expressions.value("normalizedName", string(normalized));
+
+            expressions.keyCondition = normalizedName != null
+                    ? bucketCondition + " AND " + name + " = " + value
+                    : bucketCondition + " AND begins_with(" + name + ", " + value + ")";
+        }
+        if (StringUtils.hasText(query.getClimate())) {
+            expressions.filters.add("contains(" + expressions.name("climate") + ", "
+                    + expressions.value("climate", string(query.getClimate())) + ")");
+        }
+        if (StringUtils.hasText(query.getTerrain())) {
+            expressions.filters.add("contains(" + expressions.name("terrain") + ", "
+                    + expressions.value("terrain", string(query.getTerrain())) + ")");
+        }
+        if (query.getMinFilms() != null) {
+            expressions.filters.add(expressions.name("filmCount") + " >= "
+                    + expressions.value("minFilms", number(query.getMinFilms())));
+        }
+        if (query.getMaxFilms() != null) {
+            expressions.filters.add(expressions.name("filmCount") + " <= "
+                    + expressions.value("maxFilms", number(query.getMaxFilms())));
+        }
+        if (!CollectionUtils.isEmpty(query.getFields())) {
+            Set<String> attributes = new LinkedHashSet<>();
+            attributes.add("id");
+            attributes.addAll(query.getFields());
+
+            List<String> projected = new ArrayList<>();
+            attributes.forEach(attribute -> projected.add(expressions.name(attribute)));
+            expressions.projection = String.join(", ", projected);
+        }
+        return expressions;
+    }
+
+    boolean isKeyQuery() {
+        return this.keyCondition != null;
+    }
+
+    String keyCondition() {
+        return this.keyCondition;
+    }
+
+    /**
+     * Whether {@code startKey}, a key of the normalized-name index, satisfies the key condition: DynamoDB
+     * rejects an ExclusiveStartKey from another partition, as a cursor of another name search would be.
+     */
+    boolean matchesKeyCondition(Map<String, AttributeValue> startKey) {
+        String bucket = startKey.get(PlanetTableSchema.NAME_BUCKET).s();
+        String name = startKey.get(PlanetTableSchema.NORMALIZED_NAME).s();
+        return this.nameBucket.equals(bucket)
+                && (this.namePrefix ? name.startsWith(this.normalizedName) : name.equals(this.normalizedName));
+    }
+
+    String filter() {
+        return this.filters.isEmpty() ? null : String.join(" AND ", this.filters);
+    }
+
+    String projection() {
+        return this.projection;
+    }
+
+    Map<String, String> names() {
+        return this.names.isEmpty() ? null : this.names;
+    }
+
+    Map<String, AttributeValue> values() {
+        return this.values.isEmpty() ? null : this.values;
+    }
+
+    private String name(String attribute) {
+        String placeholder = "#" + attribute;
+        this.names.put(placeholder, attribute);
+        return placeholder;
+    }
+
+    private String value(String key, AttributeValue value) {
+        String placeholder = ":" + key;
+        this.values.put(placeholder, value);
+        return placeholder;
+    }
+
+    private static AttributeValue string(String value) {
+        return AttributeValue.builder().s(value).build();
+    }
+
+    private static AttributeValue number(int value) {
+        return AttributeValue.builder().n(Integer.toString(value)).build();
+    }
+}
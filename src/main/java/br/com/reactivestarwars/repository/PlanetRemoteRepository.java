@@ -1,85 +1,89 @@
 package br.com.reactivestarwars.repository;
 
 import br.com.reactivestarwars.domain.Planet;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import br.com.reactivestarwars.exception.SwapiUnavailableException;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.util.Optional;
-import java.util.stream.Stream;
-import java.util.stream.StreamSupport;
-
+@Slf4j
 @Component
 public class PlanetRemoteRepository {
 
     private final WebClient remoteClient;
+    private final FilmCountCache filmCountCache;
+    private final PlanetCatalog planetCatalog;
+    private final SwapiCallPolicy callPolicy;
+    private final boolean filmCountFallback;
 
-    public PlanetRemoteRepository(@Value("${swapi.baseUrl}") String baseUrl) {
-        this.remoteClient = WebClient.create(baseUrl);
+    public PlanetRemoteRepository(WebClient swapiWebClient, FilmCountCache filmCountCache, PlanetCatalog planetCatalog,
+                                  SwapiCallPolicy callPolicy,
+                                  @Value("${swapi.filmCount.fallbackToUnknown:true}") boolean filmCountFallback) {
+        this.remoteClient = swapiWebClient;
+        this.filmCountCache = filmCountCache;
+        this.planetCatalog = planetCatalog;
+        this.callPolicy = callPolicy;
+        this.filmCountFallback = filmCountFallback;
     }
 
     public Flux<Planet> getPlanets(Integer page) {
-        String uri = UriComponentsBuilder.fromPath("/planets/")
-                .queryParam("page", page)
-                .build().toUriString();
-        return this.remoteClient
-                .get()
-                .uri(uri)
-                .retrieve()
-                .bodyToMono(ObjectNode.class)
-                .flatMapMany(response -> {
-                    ArrayNode results = (ArrayNode) response.get("results");
-
-                    return Optional.ofNullable(results)
-                            .filter(result -> !result.isEmpty())
-                            .map(this::parseResult)
-                            .map(Flux::fromStream)
-                            .orElseGet(Flux::empty);
-
-                });
+        return this.callPolicy.apply(Flux.defer(() -> new SwapiPlanetParser().parse(this.requestPage(page))));
     }
 
-    private Stream<Planet> parseResult(ArrayNode result) {
-        return StreamSupport
-                .stream(result.spliterator(), false)
-                .map(Planet::fromSWApi);
+    public Mono<SwapiPage> getPlanetPage(Integer page) {
+        return this.callPolicy.apply(Mono.defer(() -> {
+            SwapiPlanetParser parser = new SwapiPlanetParser();
+            return parser.parse(this.requestPage(page))
+                    .collectList()
+                    .map(planets -> new SwapiPage(
+                            parser.getCount() != null ? parser.getCount() : planets.size(), planets));
+        }));
     }
 
-    public Mono<Integer> getFilmCount(String planetName) {
-
-        String uri = UriComponentsBuilder.fromPath("/planets/")
-                .queryParam("search", planetName)
-                .build().toUriString();
-
+    private Flux<DataBuffer> requestPage(Integer page) {
         return this.remoteClient
                 .get()
-                .uri(uri)
+                .uri("/planets/?page={page}", page)
                 .retrieve()
-                .bodyToMono(ObjectNode.class)
-                .map(response -> {
-                    ArrayNode results = (ArrayNode) response.get("results");
-                    return Optional.ofNullable(results)
-                            .filter(result -> !result.isEmpty())
-                            .map(result -> extractFilmCount(result, planetName))
-                            .orElse(0);
-                });
+                .bodyToFlux(DataBuffer.class);
+    }
+
+    /**
+     * Number of films the planet appears in. When SWAPI is unavailable and the fallback is
+     * enabled, completes empty so the planet is stored with an unknown film count. A planet without
+     * a name appears in no film, SWAPI is not asked.
+     */
+    public Mono<Integer> getFilmCount(String planetName) {
+        if (planetName == null || planetName.isBlank()) {
+            return Mono.just(0);
+        }
+
+        Mono<Integer> filmCount = this.planetCatalog.getFilmCount(planetName)
+                .map(Mono::just)
+                .orElseGet(() -> this.filmCountCache.get(planetName, this::searchFilmCount));
 
+        if (!this.filmCountFallback) {
+            return filmCount;
+        }
+        return filmCount.onErrorResume(SwapiUnavailableException.class, ex -> {
+            log.warn("Film count of {} is unknown: {}", planetName, ex.getMessage());
+            return Mono.empty();
+        });
     }
 
-    private Integer extractFilmCount(ArrayNode results, String planetName) {
-        return StreamSupport.stream(results.spliterator(), false)
-                .filter(planet -> planet.get("name").asText("").equalsIgnoreCase(planetName))
-                .findFirst()
-                .flatMap(planet -> {
-                    ArrayNode films = (ArrayNode) planet.get("films");
-                    return Optional.ofNullable(films)
-                            .map(ArrayNode::size);
-                })
-                .orElse(0);
+    private Mono<Integer> searchFilmCount(String planetName) {
+        return this.callPolicy.apply(Flux.defer(() -> new SwapiPlanetParser().parse(this.remoteClient
+                        .get()
+                        .uri("/planets/?search={search}", planetName)
+                        .retrieve()
+                        .bodyToFlux(DataBuffer.class)))
+                .filter(planet -> planetName.equalsIgnoreCase(planet.getName()))
+                .next()
+                .map(Planet::getFilmCount)
+                .defaultIfEmpty(0));
     }
 }
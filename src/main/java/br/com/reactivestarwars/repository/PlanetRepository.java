@@ -1,86 +1,634 @@
 package br.com.reactivestarwars.repository;
 
-import br.com.reactivestarwars.RepositoryUtils;
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.BatchItemResult;
 import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetPage;
+import br.com.reactivestarwars.domain.PlanetQuery;
+import br.com.reactivestarwars.domain.PlanetNames;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import br.com.reactivestarwars.domain.PlanetUpdate;
+import br.com.reactivestarwars.exception.PlanetVersionConflictException;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
-import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 import software.amazon.awssdk.core.async.SdkPublisher;
 import software.amazon.awssdk.enhanced.dynamodb.*;
 import software.amazon.awssdk.enhanced.dynamodb.model.EnhancedGlobalSecondaryIndex;
-import software.amazon.awssdk.enhanced.dynamodb.model.Page;
-import software.amazon.awssdk.enhanced.dynamodb.model.QueryConditional;
+import software.amazon.awssdk.enhanced.dynamodb.model.GetItemEnhancedRequest;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.Projection;
 import software.amazon.awssdk.services.dynamodb.model.ProjectionType;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Component
 public class PlanetRepository {
 
+    private static final int UNCONDITIONAL_UPDATE_RETRIES = 3;
+
+    /**
+     * Attributes of a LastEvaluatedKey, and so of a page cursor, when scanning the table and when
+     * querying the normalized-name index.
+     */
+    private static final Set<String> TABLE_KEY = Set.of("id");
+    private static final Set<String> NORMALIZED_NAME_INDEX_KEY = Set.of("id", PlanetTableSchema.NAME_BUCKET,
+            PlanetTableSchema.NORMALIZED_NAME);
+
+    private static final Expression NEW_ITEM_CONDITION = Expression.builder()
+            .expression("attribute_not_exists(#id)")
+            .putExpressionName("#id", "id")
+            .build();
+
     private final DynamoDbAsyncTable<Planet> planetTable;
+    private final DynamoDbAsyncClient dbClient;
     private final PlanetRemoteRepository planetRemoteRepository;
+    private final PlanetBatchWriter planetBatchWriter;
+    private final PlanetCache planetCache;
+    private final PlanetWriteBuffer planetWriteBuffer;
+    private final PlanetStatsRepository planetStats;
+    private final PlanetChangeFeed changeFeed;
+    private final FilmCountEnrichmentQueue enrichmentQueue;
+    private final boolean asyncFilmCount;
+    private final int filmCountConcurrency;
+    private final int batchWriteConcurrency;
+    private final Duration batchWindow;
+    private final boolean readAfterWrite;
+    private final boolean coalesceWrites;
+    private final int deleteConcurrency;
+    private final int exportConcurrency;
+    private final int exportPageSize;
+    private final int exportPagesPerSecond;
 
-    public PlanetRepository(DynamoDbEnhancedAsyncClient enhancedDbClient, DynamoDbAsyncClient dbClient,
-                            PlanetRemoteRepository planetRemoteRepository) {
+    public PlanetRepository(DynamoDbAsyncTable<Planet> planetTable, DynamoDbAsyncClient dbClient,
+                            PlanetRemoteRepository planetRemoteRepository,
+                            PlanetBatchWriter planetBatchWriter,
+                            PlanetCache planetCache,
+                            PlanetWriteBuffer planetWriteBuffer,
+                            PlanetStatsRepository planetStats,
+                            PlanetChangeFeed changeFeed,
+                            FilmCountEnrichmentQueue enrichmentQueue,
+                            TableProvisioner tableProvisioner,
+                            @Value("${planets.filmCount.async:false}") boolean asyncFilmCount,
+                            @Value("${planets.batch.filmCountConcurrency:8}") int filmCountConcurrency,
+                            @Value("${planets.batch.writeConcurrency:4}") int batchWriteConcurrency,
+                            @Value("${planets.batch.window:50ms}") Duration batchWindow,
+                            @Value("${planets.save.readAfterWrite:false}") boolean readAfterWrite,
+                            @Value("${planets.save.coalesce.enabled:false}") boolean coalesceWrites,
+                            @Value("${planets.delete.concurrency:4}") int deleteConcurrency,
+                            @Value("${planets.export.concurrency:4}") int exportConcurrency,
+                            @Value("${planets.export.pageSize:500}") int exportPageSize,
+                            @Value("${planets.export.pagesPerSecond:0}") int exportPagesPerSecond) {
 
-        this.planetTable = enhancedDbClient.table(Planet.class.getSimpleName(), TableSchema.fromBean(Planet.class));
+        this.planetTable = planetTable;
+        this.dbClient = dbClient;
         this.planetRemoteRepository = planetRemoteRepository;
+        this.planetBatchWriter = planetBatchWriter;
+        this.planetCache = planetCache;
+        this.planetWriteBuffer = planetWriteBuffer;
+        this.planetStats = planetStats;
+        this.changeFeed = changeFeed;
+        this.enrichmentQueue = enrichmentQueue;
+        this.asyncFilmCount = asyncFilmCount;
+        this.filmCountConcurrency = filmCountConcurrency;
+        this.batchWriteConcurrency = batchWriteConcurrency;
+        this.batchWindow = batchWindow;
+        this.readAfterWrite = readAfterWrite;
+        this.coalesceWrites = coalesceWrites;
+        this.deleteConcurrency = deleteConcurrency;
+        this.exportConcurrency = exportConcurrency;
+        this.exportPageSize = exportPageSize;
+        this.exportPagesPerSecond = exportPagesPerSecond;
 
-        RepositoryUtils.createTableIfNotExists(dbClient, planetTable, (builder -> {
+        tableProvisioner.register(planetTable, (builder -> {
             EnhancedGlobalSecondaryIndex secondaryIndex = EnhancedGlobalSecondaryIndex.builder()
-                    .indexName("name")
+                    .indexName(PlanetTableSchema.NAME_INDEX)
                     .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
                     .build();
-            builder.globalSecondaryIndices(secondaryIndex);
+            EnhancedGlobalSecondaryIndex normalizedNameIndex = EnhancedGlobalSecondaryIndex.builder()
+                    .indexName(PlanetTableSchema.NORMALIZED_NAME_INDEX)
+                    .projection(Projection.builder().projectionType(ProjectionType.ALL).build())
+                    .build();
+            builder.globalSecondaryIndices(secondaryIndex, normalizedNameIndex);
 
         }));
     }
 
+    /**
+     * Creates a planet. With planets.filmCount.async the planet is written straight away with no
+     * film count and handed to the {@link FilmCountEnrichmentQueue} to be backfilled.
+     */
     public Mono<Planet> save(Planet planetToSave) {
-        String itemId = UUID.randomUUID().toString();
-        planetToSave.setId(itemId);
+        return this.create(planetToSave, UUID.randomUUID().toString(), this.coalesceWrites);
+    }
+
+    /**
+     * Creates a planet under {@code id}, chosen by the caller so that a retried create targets the same
+     * item: when that id already exists nothing is written and the stored planet is emitted instead.
+     * Never coalesced, since a batched write cannot refuse to overwrite.
+     */
+    public Mono<Planet> saveOnce(String id, Planet planetToSave) {
+        return this.create(planetToSave, id, false)
+                .onErrorResume(ConditionalCheckFailedException.class, ex -> this.getItemConsistently(id));
+    }
+
+    private Mono<Planet> create(Planet planetToSave, String id, boolean coalesce) {
+        Mono<Planet> saved = this.prepare(planetToSave, id)
+                .flatMap(planet -> this.saveAndGet(planet, coalesce))
+                .doOnNext(this.planetCache::put)
+                .doOnNext(this.changeFeed::created)
+                .doOnNext(planet -> this.planetStats.record(null, planet));
+
+        return this.asyncFilmCount
+                ? saved.flatMap(this.enrichmentQueue::enqueue)
+                : saved;
+    }
+
+    /**
+     * Creates every planet of the stream, resolving film counts with bounded concurrency and writing
+     * them in BatchWriteItem chunks. Emits one result per planet as soon as its chunk completes.
+     */
+    public Flux<BatchItemResult> saveAll(Flux<Planet> planetsToSave) {
+        return planetsToSave
+                .flatMap(planet -> this.prepare(planet, UUID.randomUUID().toString())
+                        .map(PreparedPlanet::ready)
+                        .onErrorResume(ex -> Mono.just(PreparedPlanet.failed(planet, errorMessage(ex)))),
+                        this.filmCountConcurrency)
+                .bufferTimeout(PlanetBatchWriter.MAX_BATCH_SIZE, this.batchWindow)
+                .onBackpressureBuffer()
+                .flatMap(this::writeChunk, this.batchWriteConcurrency)
+                .concatMap(this::countCreated)
+                .concatMap(this::enqueueCreated);
+    }
+
+    private Mono<Planet> prepare(Planet planet, String id) {
+        planet.setId(id);
+        planet.setVersion(1L);
+        // the film count comes from SWAPI, never from the client
+        planet.setFilmCount(null);
+
+        if (this.asyncFilmCount) {
+            return Mono.just(planet);
+        }
+
+        // an empty film count means SWAPI is unavailable: the planet is kept with an unknown count
+        return this.planetRemoteRepository.getFilmCount(planet.getName())
+                .doOnNext(planet::setFilmCount)
+                .thenReturn(planet);
+    }
+
+    private Mono<BatchItemResult> countCreated(BatchItemResult result) {
+        if (result.getStatus() != BatchItemResult.Status.CREATED) {
+            return Mono.just(result);
+        }
+        this.changeFeed.created(result.getPlanet());
+        this.planetStats.record(null, result.getPlanet());
+        return Mono.just(result);
+    }
+
+    private Mono<BatchItemResult> enqueueCreated(BatchItemResult result) {
+        if (!this.asyncFilmCount || result.getStatus() != BatchItemResult.Status.CREATED) {
+            return Mono.just(result);
+        }
+        return this.enrichmentQueue.enqueue(result.getPlanet()).thenReturn(result);
+    }
+
+    private Flux<BatchItemResult> writeChunk(List<PreparedPlanet> chunk) {
+        List<Planet> ready = chunk.stream()
+                .filter(prepared -> prepared.getError() == null)
+                .map(PreparedPlanet::getPlanet)
+                .collect(Collectors.toList());
 
-        return this.planetRemoteRepository.getFilmCount(planetToSave.getName())
-                .map(filmCount -> {
-                    planetToSave.setFilmCount(filmCount);
-                    return planetToSave;
+        Flux<BatchItemResult> failed = Flux.fromIterable(chunk)
+                .filter(prepared -> prepared.getError() != null)
+                .map(prepared -> failed(prepared.getPlanet(), prepared.getError()));
+
+        Flux<BatchItemResult> written = this.planetBatchWriter.putAll(ready)
+                .flatMapIterable(unprocessed -> {
+                    Set<String> unprocessedIds = unprocessed.stream()
+                            .map(Planet::getId)
+                            .collect(Collectors.toSet());
+                    return ready.stream()
+                            .map(planet -> {
+                                if (unprocessedIds.contains(planet.getId())) {
+                                    return failed(planet, "Write was not processed by DynamoDB");
+                                }
+                                this.planetCache.put(planet);
+                                return BatchItemResult.created(planet);
+                            })
+                            .collect(Collectors.toList());
                 })
-                .flatMap(this::saveAndGet);
+                .onErrorResume(ex -> Flux.fromIterable(ready)
+                        .map(planet -> failed(planet, errorMessage(ex))));
+
+        return failed.concatWith(written);
+    }
+
+    private static BatchItemResult failed(Planet planet, String error) {
+        planet.setId(null);
+        return BatchItemResult.failed(planet, error);
     }
 
-    private Mono<Planet> saveAndGet(Planet planet) {
-        return Mono.fromFuture(this.planetTable.putItem(planet)
-                .thenCompose(__ -> this.findById(planet.getId()).toFuture())
-        );
+    private static String errorMessage(Throwable ex) {
+        return Objects.toString(ex.getMessage(), ex.getClass().getSimpleName());
     }
 
-    public Flux<Planet> getAll(String name) {
+    /**
+     * Writes a new planet, refusing to overwrite an existing id. With {@code coalesce} the write goes
+     * through the {@link PlanetWriteBuffer} instead, batched with concurrent creates. The
+     * written planet is returned as is, unless planets.save.readAfterWrite asks for it to be read back
+     * from DynamoDB.
+     */
+    private Mono<Planet> saveAndGet(Planet planet, boolean coalesce) {
+        Mono<Planet> written;
+        if (coalesce) {
+            written = this.planetWriteBuffer.write(planet);
+        } else {
+            PutItemEnhancedRequest<Planet> request = PutItemEnhancedRequest.builder(Planet.class)
+                    .item(planet)
+                    .conditionExpression(NEW_ITEM_CONDITION)
+                    .build();
+
+            written = Mono.fromFuture(() -> this.planetTable.putItem(request))
+                    .thenReturn(planet);
+        }
 
-        SdkPublisher<Planet> publisher = StringUtils.hasText(name)
-                ? this.searchByName(name)
-                : this.planetTable.scan().items();
-        return Flux.from(publisher);
+        return this.readAfterWrite
+                ? written.flatMap(saved -> this.getItem(saved.getId()))
+                : written;
     }
 
-    private SdkPublisher<Planet> searchByName(String name) {
-        DynamoDbAsyncIndex<Planet> index = this.planetTable.index("name");
-        SdkPublisher<Page<Planet>> indexQuery = index.query(builder -> {
-            QueryConditional query = QueryConditional.keyEqualTo(Key.builder().partitionValue(name).build());
-            builder.queryConditional(query);
+    /**
+     * Streams every planet matching the query: a normalized-name index query when a name or name
+     * prefix is given, a scan otherwise. Filters and projections run in DynamoDB, so only matching items and requested
+     * attributes leave the table.
+     */
+    public Flux<Planet> getAll(PlanetQuery query) {
+        return Flux.defer(() -> {
+            PlanetQueryExpressions expressions = PlanetQueryExpressions.of(query);
+
+            SdkPublisher<Map<String, AttributeValue>> items = expressions.isKeyQuery()
+                    ? this.dbClient.queryPaginator(this.queryRequest(expressions, null, null)).items()
+                    : this.dbClient.scanPaginator(this.scanRequest(expressions, null, null)).items();
+            return Flux.from(items);
+        })
+                .map(this::toPlanet);
+    }
+
+    /**
+     * Reads a single DynamoDB page, starting after the position encoded in the query cursor. The
+     * limit applies to evaluated items, so a filtered page may hold fewer planets, or none, and
+     * still have a next cursor.
+     */
+    public Mono<PlanetPage> getPage(PlanetQuery query) {
+        return Mono.defer(() -> {
+            PlanetQueryExpressions expressions = PlanetQueryExpressions.of(query);
+            Map<String, AttributeValue> exclusiveStartKey = PageCursor.decode(query.getCursor(),
+                    expressions.isKeyQuery() ? NORMALIZED_NAME_INDEX_KEY : TABLE_KEY);
+            if (exclusiveStartKey != null && expressions.isKeyQuery()
+                    && !expressions.matchesKeyCondition(exclusiveStartKey)) {
+                throw new IllegalArgumentException("Invalid page cursor");
+            }
+
+            if (expressions.isKeyQuery()) {
+                return Mono.fromFuture(() -> this.dbClient.query(this.queryRequest(expressions, query.getLimit(), exclusiveStartKey)))
+                        .map(response -> this.toPage(response.items(), response.lastEvaluatedKey()));
+            }
+            return Mono.fromFuture(() -> this.dbClient.scan(this.scanRequest(expressions, query.getLimit(), exclusiveStartKey)))
+                    .map(response -> this.toPage(response.items(), response.lastEvaluatedKey()));
         });
-        return indexQuery.flatMapIterable(Page::items);
+    }
+
+    private QueryRequest queryRequest(PlanetQueryExpressions expressions, Integer limit,
+                                      Map<String, AttributeValue> exclusiveStartKey) {
+        return QueryRequest.builder()
+                .tableName(this.planetTable.tableName())
+                .indexName(PlanetTableSchema.NORMALIZED_NAME_INDEX)
+                .keyConditionExpression(expressions.keyCondition())
+                .filterExpression(expressions.filter())
+                .projectionExpression(expressions.projection())
+                .expressionAttributeNames(expressions.names())
+                .expressionAttributeValues(expressions.values())
+                .limit(limit)
+                .exclusiveStartKey(exclusiveStartKey)
+                .build();
+    }
+
+    private ScanRequest scanRequest(PlanetQueryExpressions expressions, Integer limit,
+                                    Map<String, AttributeValue> exclusiveStartKey) {
+        return ScanRequest.builder()
+                .tableName(this.planetTable.tableName())
+                .filterExpression(expressions.filter())
+                .projectionExpression(expressions.projection())
+                .expressionAttributeNames(expressions.names())
+                .expressionAttributeValues(expressions.values())
+                .limit(limit)
+                .exclusiveStartKey(exclusiveStartKey)
+                .build();
+    }
+
+    private PlanetPage toPage(List<Map<String, AttributeValue>> items, Map<String, AttributeValue> lastEvaluatedKey) {
+        List<Planet> planets = items.stream()
+                .map(this::toPlanet)
+                .collect(Collectors.toList());
+        return new PlanetPage(planets, PageCursor.encode(lastEvaluatedKey));
+    }
+
+    private Planet toPlanet(Map<String, AttributeValue> item) {
+        return this.planetTable.tableSchema().mapToItem(item);
+    }
+
+    /**
+     * Reads the whole table through a parallel scan of {@code totalSegments} segments. At most
+     * planets.export.concurrency segments are scanned at once, each one limited to
+     * planets.export.pagesPerSecond pages (unlimited when zero).
+     */
+    public Flux<Planet> exportAll(int totalSegments) {
+        return Flux.range(0, totalSegments)
+                .flatMap(segment -> this.scanSegment(segment, totalSegments), this.exportConcurrency);
+    }
+
+    private Flux<Planet> scanSegment(int segment, int totalSegments) {
+        ScanRequest request = ScanRequest.builder()
+                .tableName(this.planetTable.tableName())
+                .segment(segment)
+                .totalSegments(totalSegments)
+                .limit(this.exportPageSize)
+                .build();
+
+        Flux<ScanResponse> pages = Flux.from(this.dbClient.scanPaginator(request));
+
+        if (this.exportPagesPerSecond > 0) {
+            Duration pageInterval = Duration.ofSeconds(1).dividedBy(this.exportPagesPerSecond);
+            pages = pages.concatMap(page -> Mono.delay(pageInterval).thenReturn(page), 1);
+        }
+
+        return pages
+                .flatMapIterable(ScanResponse::items)
+                .map(this::toPlanet);
     }
 
     public Mono<Planet> findById(String id) {
+        return this.planetCache.get(id, this::getItem);
+    }
+
+    private Mono<Planet> getItem(String id) {
         Key key = Key.builder().partitionValue(id).build();
-        return Mono.fromFuture(this.planetTable.getItem(key));
+        return Mono.fromFuture(() -> this.planetTable.getItem(key));
+    }
+
+    /**
+     * Applies {@code update} with a single conditional UpdateItem touching only the attributes that
+     * change, and bumps the version. {@code expectedVersion} is the version the client read, or null
+     * to update whatever version is current. Emits the updated planet, nothing when there is no such
+     * planet, or {@link PlanetVersionConflictException} when it is at another version.
+     * <p>
+     * An update without an expected version starts from a consistent read, and is applied again if the
+     * planet changes before it is written.
+     * <p>
+     * The film count is looked up again only when the name changes; with planets.filmCount.async it
+     * becomes unknown and is backfilled by the {@link FilmCountEnrichmentQueue}.
+     */
+    public Mono<Planet> update(String id, Long expectedVersion, PlanetUpdate update) {
+        Mono<Planet> currentPlanet = expectedVersion == null
+                ? this.getItemConsistently(id)
+                // the cached copy may be stale, only a fresh read can tell a real conflict
+                : this.findById(id).flatMap(cached -> expectedVersion == versionOf(cached)
+                        ? Mono.just(cached)
+                        : this.getItemConsistently(id));
+
+        return currentPlanet
+                .flatMap(current -> {
+                    long version = versionOf(current);
+                    if (expectedVersion != null && expectedVersion != version) {
+                        return Mono.error(new PlanetVersionConflictException(version));
+                    }
+
+                    Planet updated = update.applyTo(current);
+                    boolean renamed = !Objects.equals(updated.getName(), current.getName());
+                    if (!renamed && Objects.equals(updated, current)) {
+                        return Mono.just(current);
+                    }
+                    updated.setVersion(version + 1);
+
+                    Mono<Planet> prepared = Mono.just(updated);
+                    if (renamed) {
+                        updated.setFilmCount(null);
+                        if (!this.asyncFilmCount) {
+                            prepared = this.planetRemoteRepository.getFilmCount(updated.getName())
+                                    .doOnNext(updated::setFilmCount)
+                                    .thenReturn(updated);
+                        }
+                    }
+                    return prepared.flatMap(planet -> this.writeUpdate(current, planet, renamed));
+                })
+                .retryWhen(Retry.max(UNCONDITIONAL_UPDATE_RETRIES)
+                        .filter(ex -> expectedVersion == null && ex instanceof PlanetVersionConflictException)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
+
+    private Mono<Planet> writeUpdate(Planet current, Planet updated, boolean renamed) {
+        UpdateExpression expression = new UpdateExpression();
+        expression.set("name", current.getName(), updated.getName());
+        expression.set("climate", current.getClimate(), updated.getClimate());
+        expression.set("terrain", current.getTerrain(), updated.getTerrain());
+        expression.set("filmCount", current.getFilmCount(), updated.getFilmCount());
+        if (renamed) {
+            // derived attributes the table schema computes on puts, kept in step for the normalized-name index
+            String currentNormalizedName = PlanetNames.normalize(current.getName());
+            String normalizedName = PlanetNames.normalize(updated.getName());
+            expression.set(PlanetTableSchema.NAME_BUCKET, PlanetNames.bucket(currentNormalizedName), PlanetNames.bucket(normalizedName));
+            expression.set(PlanetTableSchema.NORMALIZED_NAME, currentNormalizedName, normalizedName);
+        }
+        expression.set("version", null, updated.getVersion());
+
+        String versionCondition;
+        if (current.getVersion() == null) {
+            versionCondition = "attribute_not_exists(#version)";
+        } else {
+            versionCondition = "#version = :expectedVersion";
+            expression.values.put(":expectedVersion", AttributeValue.builder().n(current.getVersion().toString()).build());
+        }
+        expression.names.put("#id", "id");
+
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(this.planetTable.tableName())
+                .key(Map.of("id", AttributeValue.builder().s(current.getId()).build()))
+                .updateExpression(expression.build())
+                .conditionExpression("attribute_exists(#id) AND " + versionCondition)
+                .expressionAttributeNames(expression.names)
+                .expressionAttributeValues(expression.values)
+                .build();
+
+        Mono<Planet> written = Mono.fromFuture(() -> this.dbClient.updateItem(request))
+                .thenReturn(updated)
+                .doOnNext(this.planetCache::put)
+                .doOnNext(this.changeFeed::updated)
+                .doOnNext(planet -> this.planetStats.record(current, planet))
+                .onErrorResume(ConditionalCheckFailedException.class, ex -> {
+                    this.planetCache.invalidate(current.getId());
+                    return this.getItemConsistently(current.getId())
+                            .flatMap(fresh -> Mono.<Planet>error(new PlanetVersionConflictException(versionOf(fresh))));
+                });
+
+        return renamed && this.asyncFilmCount
+                ? written.flatMap(this.enrichmentQueue::enqueue)
+                : written;
+    }
+
+    private static long versionOf(Planet planet) {
+        return planet.getVersion() == null ? 0 : planet.getVersion();
+    }
+
+    private Mono<Planet> getItemConsistently(String id) {
+        GetItemEnhancedRequest request = GetItemEnhancedRequest.builder()
+                .key(Key.builder().partitionValue(id).build())
+                .consistentRead(true)
+                .build();
+        return Mono.fromFuture(() -> this.planetTable.getItem(request));
     }
 
     public Mono<Planet> deleteById(String id) {
         Key key = Key.builder().partitionValue(id).build();
-        return Mono.fromFuture(this.planetTable.deleteItem(key));
+        return Mono.fromFuture(() -> this.planetTable.deleteItem(key))
+                .doOnNext(this.changeFeed::deleted)
+                .doOnNext(deleted -> this.planetStats.record(deleted, null))
+                .doFinally(signal -> this.planetCache.invalidate(id));
+    }
+
+    /**
+     * Deletes every id of the stream in BatchWriteItem chunks, with at most planets.delete.concurrency
+     * chunks in flight. Each chunk is first looked up with BatchGetItem so that missing ids are reported
+     * as not found; an item created between the lookup and the delete is deleted but reported as not found.
+     */
+    public Flux<BatchItemResult> deleteAll(Flux<String> ids) {
+        return ids
+                .distinct()
+                .buffer(PlanetBatchWriter.MAX_BATCH_SIZE)
+                .flatMap(this::deleteChunk, this.deleteConcurrency);
+    }
+
+    /**
+     * Deletes every planet named exactly {@code name}, resolving their ids through the name index.
+     */
+    public Flux<BatchItemResult> deleteAllByName(String name) {
+        QueryRequest request = QueryRequest.builder()
+                .tableName(this.planetTable.tableName())
+                .indexName(PlanetTableSchema.NAME_INDEX)
+                .keyConditionExpression("#name = :name")
+                .projectionExpression("#id")
+                .expressionAttributeNames(Map.of("#name", "name", "#id", "id"))
+                .expressionAttributeValues(Map.of(":name", AttributeValue.builder().s(name).build()))
+                .build();
+
+        Flux<String> ids = Flux.defer(() -> this.dbClient.queryPaginator(request))
+                .flatMapIterable(QueryResponse::items)
+                .map(item -> item.get("id").s());
+
+        return this.deleteAll(ids);
+    }
+
+    private Flux<BatchItemResult> deleteChunk(List<String> ids) {
+        return this.planetBatchWriter.findAll(ids)
+                .flatMapMany(existing -> {
+                    List<String> toDelete = ids.stream()
+                            .filter(existing::containsKey)
+                            .collect(Collectors.toList());
+
+                    return this.planetBatchWriter.deleteAll(toDelete)
+                            .flatMapIterable(unprocessed -> ids.stream()
+                                    .map(id -> {
+                                        if (!existing.containsKey(id)) {
+                                            return BatchItemResult.notFound(id);
+                                        }
+                                        return unprocessed.contains(id)
+                                                ? BatchItemResult.deleteFailed(id, "Delete was not processed by DynamoDB")
+                                                : BatchItemResult.deleted(id);
+                                    })
+                                    .collect(Collectors.toList()))
+                            .concatMap(result -> {
+                                if (result.getStatus() != BatchItemResult.Status.DELETED) {
+                                    return Mono.just(result);
+                                }
+                                Planet deleted = existing.get(result.getId());
+                                this.changeFeed.deleted(deleted);
+                                this.planetStats.record(deleted, null);
+                                return Mono.just(result);
+                            });
+                })
+                .onErrorResume(ex -> Flux.fromIterable(ids)
+                        .map(id -> BatchItemResult.deleteFailed(id, errorMessage(ex))))
+                .doFinally(signal -> ids.forEach(this.planetCache::invalidate));
+    }
+
+    /**
+     * SET and REMOVE clauses for the attributes whose value changes.
+     */
+    private static class UpdateExpression {
+
+        private final List<String> sets = new ArrayList<>();
+        private final List<String> removes = new ArrayList<>();
+        private final Map<String, String> names = new HashMap<>();
+        private final Map<String, AttributeValue> values = new HashMap<>();
+
+        void set(String attribute, Object current, Object updated) {
+            if (Objects.equals(current, updated)) {
+                return;
+            }
+            String name = "#" + attribute;
+            this.names.put(name, attribute);
+            if (updated == null) {
+                this.removes.add(name);
+            } else {
+                this.sets.add(name + " = :" + attribute);
+                AttributeValue value = updated instanceof Number
+                        ? AttributeValue.builder().n(updated.toString()).build()
+                        : AttributeValue.builder().s(updated.toString()).build();
+                this.values.put(":" + attribute, value);
+            }
+        }
+
+        String build() {
+            StringBuilder expression = new StringBuilder("SET ").append(String.join(", ", this.sets));
+            if (!this.removes.isEmpty()) {
+                expression.append(" REMOVE ").append(String.join(", ", this.removes));
+            }
+            return expression.toString();
+        }
+    }
+
+    @Data
+    private static class PreparedPlanet {
+
+        private final Planet planet;
+
+        private final String error;
+
+        static PreparedPlanet ready(Planet planet) {
+            return new PreparedPlanet(planet, null);
+        }
+
+        static PreparedPlanet failed(Planet planet, String error) {
+            return new PreparedPlanet(planet, error);
+        }
     }
 }
@@ -0,0 +1,307 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetStatCounter;
+import br.com.reactivestarwars.domain.PlanetStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.mapper.StaticTableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static software.amazon.awssdk.enhanced.dynamodb.mapper.StaticAttributeTags.primaryPartitionKey;
+
+/**
+ * Planet statistics maintained incrementally: every write adjusts the affected counters with a DynamoDB
+ * {@code ADD} on one item per counter of the PlanetStats table, and an in-memory mirror of those counters
+ * answers reads in constant time.
+ * <p>
+ * The mirror is adjusted as soon as a write is recorded, while the table is updated in the background:
+ * recorded deltas are queued, summed per counter every planets.stats.window and written with at most
+ * planets.stats.writeConcurrency ADDs in flight, so planet writes never wait for the statistics.
+ * <p>
+ * The mirror is reloaded from the table on startup and every planets.stats.refreshInterval, which picks
+ * up writes made by other instances. Counters that drifted, e.g. after a failed update, are repaired by
+ * {@link #rebuild}.
+ */
+@Slf4j
+@Component
+public class PlanetStatsRepository {
+
+    static final String TOTAL = "total";
+    static final String CLIMATE = "climate#";
+    static final String TERRAIN = "terrain#";
+    static final String FILM_COUNT = "filmCount#";
+    static final String UNKNOWN = "unknown";
+
+    private static final TableSchema<PlanetStatCounter> TABLE_SCHEMA = StaticTableSchema.builder(PlanetStatCounter.class)
+            .newItemSupplier(PlanetStatCounter::new)
+            .addAttribute(String.class, attribute -> attribute.name("id")
+                    .getter(PlanetStatCounter::getId)
+                    .setter(PlanetStatCounter::setId)
+                    .tags(primaryPartitionKey()))
+            .addAttribute(Long.class, attribute -> attribute.name("count")
+                    .getter(PlanetStatCounter::getCount)
+                    .setter(PlanetStatCounter::setCount))
+            .build();
+
+    private final DynamoDbAsyncClient dbClient;
+    private final DynamoDbAsyncTable<PlanetStatCounter> statsTable;
+    private final TableProvisioner tableProvisioner;
+    private final Duration refreshInterval;
+    private final int writeConcurrency;
+    private final int batchSize;
+    private final Duration window;
+
+    private final Sinks.Many<Map<String, Long>> pending;
+
+    private volatile Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+
+    private Disposable refresh;
+
+    public PlanetStatsRepository(DynamoDbAsyncClient dbClient, DynamoDbEnhancedAsyncClient enhancedDbClient,
+                                 TableProvisioner tableProvisioner,
+                                 @Value("${planets.stats.refreshInterval:1m}") Duration refreshInterval,
+                                 @Value("${planets.stats.writeConcurrency:8}") int writeConcurrency,
+                                 @Value("${planets.stats.capacity:10000}") int capacity,
+                                 @Value("${planets.stats.batchSize:100}") int batchSize,
+                                 @Value("${planets.stats.window:100ms}") Duration window) {
+        this.dbClient = dbClient;
+        this.statsTable = enhancedDbClient.table("PlanetStats", TABLE_SCHEMA);
+        this.tableProvisioner = tableProvisioner;
+        this.refreshInterval = refreshInterval;
+        this.writeConcurrency = writeConcurrency;
+        this.batchSize = batchSize;
+        this.window = window;
+        this.pending = Sinks.many().unicast().onBackpressureBuffer(Queues.<Map<String, Long>>get(capacity).get());
+
+        tableProvisioner.register(this.statsTable, builder -> {
+        });
+    }
+
+    @PostConstruct
+    public void startWriter() {
+        this.tableProvisioner.ready()
+                .thenMany(this.pending.asFlux())
+                .bufferTimeout(this.batchSize, this.window)
+                .onBackpressureBuffer()
+                .concatMap(this::write)
+                .subscribe();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        this.refresh = this.tableProvisioner.ready()
+                .thenMany(Flux.interval(Duration.ZERO, this.refreshInterval))
+                .onBackpressureDrop()
+                .concatMap(tick -> this.reload()
+                        .onErrorResume(ex -> {
+                            log.warn("Failed to reload the planet statistics", ex);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.refresh != null) {
+            this.refresh.dispose();
+        }
+        // lets the writer flush what is already queued
+        this.pending.tryEmitComplete();
+    }
+
+    /**
+     * Current statistics, read from the in-memory mirror.
+     */
+    public PlanetStats get() {
+        Map<String, Long> byClimate = new TreeMap<>();
+        Map<String, Long> byTerrain = new TreeMap<>();
+        Map<String, Long> byFilmCount = new TreeMap<>();
+        long total = 0;
+
+        for (Map.Entry<String, AtomicLong> counter : this.counters.entrySet()) {
+            String key = counter.getKey();
+            long value = counter.getValue().get();
+            if (key.equals(TOTAL)) {
+                total = value;
+            } else if (value > 0) {
+                if (key.startsWith(CLIMATE)) {
+                    byClimate.put(key.substring(CLIMATE.length()), value);
+                } else if (key.startsWith(TERRAIN)) {
+                    byTerrain.put(key.substring(TERRAIN.length()), value);
+                } else if (key.startsWith(FILM_COUNT)) {
+                    byFilmCount.put(key.substring(FILM_COUNT.length()), value);
+                }
+            }
+        }
+        return new PlanetStats(total, byClimate, byTerrain, byFilmCount);
+    }
+
+    /**
+     * Moves the counters from {@code before} to {@code after}; either may be null, for a created or
+     * deleted planet. Returns once the mirror is adjusted and the table update is queued; failures,
+     * including a full queue, are logged and left to {@link #rebuild}, the planet write stands.
+     */
+    public void record(Planet before, Planet after) {
+        Map<String, Long> deltas = new HashMap<>();
+        counterKeys(before).forEach(key -> deltas.merge(key, -1L, Long::sum));
+        counterKeys(after).forEach(key -> deltas.merge(key, 1L, Long::sum));
+        this.apply(deltas);
+    }
+
+    public void recordFilmCountChange(Integer before, Integer after) {
+        if (Objects.equals(before, after)) {
+            return;
+        }
+        Map<String, Long> deltas = new HashMap<>();
+        deltas.put(filmCountKey(before), -1L);
+        deltas.put(filmCountKey(after), 1L);
+        this.apply(deltas);
+    }
+
+    /**
+     * Recomputes every counter from {@code planets}, typically a parallel scan of the planet table,
+     * overwrites the table with the result and removes counters that dropped to nothing. Writes made
+     * while the rebuild runs may be lost; run it again if planets changed meanwhile.
+     */
+    public Mono<PlanetStats> rebuild(Flux<Planet> planets) {
+        return planets
+                .collect(HashMap<String, Long>::new, (counts, planet) ->
+                        counterKeys(planet).forEach(key -> counts.merge(key, 1L, Long::sum)))
+                .flatMap(counts -> {
+                    counts.putIfAbsent(TOTAL, 0L);
+
+                    Flux<Void> written = Flux.fromIterable(counts.entrySet())
+                            .flatMap(counter -> Mono.fromFuture(() -> this.statsTable.putItem(
+                                    new PlanetStatCounter(counter.getKey(), counter.getValue()))), this.writeConcurrency);
+
+                    Flux<Void> removed = Flux.from(this.statsTable.scan().items())
+                            .filter(counter -> !counts.containsKey(counter.getId()))
+                            .flatMap(counter -> Mono.fromFuture(() -> this.statsTable.deleteItem(
+                                    Key.builder().partitionValue(counter.getId()).build())), this.writeConcurrency)
+                            .then()
+                            .flux();
+
+                    return written.thenMany(removed)
+                            .then(Mono.fromRunnable(() -> this.replace(counts)));
+                })
+                .then(Mono.fromSupplier(this::get));
+    }
+
+    Mono<Void> reload() {
+        return Flux.from(this.statsTable.scan().items())
+                .collectMap(PlanetStatCounter::getId, counter -> Objects.requireNonNullElse(counter.getCount(), 0L))
+                .doOnNext(this::replace)
+                .then();
+    }
+
+    private void replace(Map<String, Long> counts) {
+        Map<String, AtomicLong> replacement = new ConcurrentHashMap<>();
+        counts.forEach((key, value) -> replacement.put(key, new AtomicLong(value)));
+        this.counters = replacement;
+    }
+
+    private void apply(Map<String, Long> deltas) {
+        deltas.values().removeIf(delta -> delta == 0);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        deltas.forEach((key, delta) -> this.counters.computeIfAbsent(key, __ -> new AtomicLong()).addAndGet(delta));
+
+        if (this.emit(deltas).isFailure()) {
+            log.warn("Planet statistics queue is full, dropped {}", deltas);
+        }
+    }
+
+    private synchronized Sinks.EmitResult emit(Map<String, Long> deltas) {
+        return this.pending.tryEmitNext(deltas);
+    }
+
+    /**
+     * Sums the queued deltas per counter, so that a burst of writes costs one ADD per counter touched.
+     */
+    private Mono<Void> write(List<Map<String, Long>> batch) {
+        Map<String, Long> sums = new HashMap<>();
+        batch.forEach(deltas -> deltas.forEach((key, delta) -> sums.merge(key, delta, Long::sum)));
+
+        return Flux.fromIterable(sums.entrySet())
+                .filter(sum -> sum.getValue() != 0)
+                .flatMap(sum -> this.add(sum.getKey(), sum.getValue()), this.writeConcurrency)
+                .then();
+    }
+
+    private Mono<Void> add(String key, long delta) {
+        UpdateItemRequest request = UpdateItemRequest.builder()
+                .tableName(this.statsTable.tableName())
+                .key(Map.of("id", AttributeValue.builder().s(key).build()))
+                .updateExpression("ADD #count :delta")
+                .expressionAttributeNames(Map.of("#count", "count"))
+                .expressionAttributeValues(Map.of(":delta", AttributeValue.builder().n(Long.toString(delta)).build()))
+                .build();
+
+        return Mono.fromFuture(() -> this.dbClient.updateItem(request))
+                .then()
+                .onErrorResume(ex -> {
+                    log.warn("Failed to add {} to planet statistic {}", delta, key, ex);
+                    return Mono.empty();
+                });
+    }
+
+    static Set<String> counterKeys(Planet planet) {
+        if (planet == null) {
+            return Set.of();
+        }
+        Set<String> keys = new HashSet<>();
+        keys.add(TOTAL);
+        values(planet.getClimate()).forEach(climate -> keys.add(CLIMATE + climate));
+        values(planet.getTerrain()).forEach(terrain -> keys.add(TERRAIN + terrain));
+        keys.add(filmCountKey(planet.getFilmCount()));
+        return keys;
+    }
+
+    /**
+     * Splits comma-separated SWAPI values such as "grasslands, mountains".
+     */
+    private static Set<String> values(String value) {
+        Set<String> values = value == null ? Set.of() : Arrays.stream(value.split(","))
+                .map(part -> part.trim().toLowerCase(Locale.ROOT))
+                .filter(part -> !part.isEmpty())
+                .collect(Collectors.toSet());
+        return values.isEmpty() ? Set.of(UNKNOWN) : values;
+    }
+
+    private static String filmCountKey(Integer filmCount) {
+        return FILM_COUNT + (filmCount == null ? UNKNOWN : filmCount.toString());
+    }
+}
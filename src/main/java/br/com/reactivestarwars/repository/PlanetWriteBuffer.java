@@ -0,0 +1,139 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.exception.WriteBufferFullException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Data;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Coalesces individual planet writes into BatchWriteItem calls of up to
+ * planets.save.coalesce.maxBatch items, flushed at the latest after planets.save.coalesce.window.
+ * <p>
+ * Every caller completes once its own item has been written, or fails if DynamoDB left it
+ * unprocessed after the {@link PlanetBatchWriter} retries. Once planets.save.coalesce.capacity
+ * writes are pending, new ones are refused with {@link WriteBufferFullException}.
+ * <p>
+ * BatchWriteItem does not support condition expressions, so buffered writes do not guard against
+ * overwriting an existing id; planet ids are random UUIDs.
+ */
+@Component
+public class PlanetWriteBuffer {
+
+    private final PlanetBatchWriter planetBatchWriter;
+    private final int capacity;
+    private final int maxBatch;
+    private final Duration window;
+    private final int concurrency;
+
+    private final Sinks.Many<PendingWrite> buffer;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final DistributionSummary batchSize;
+
+    private Disposable worker;
+
+    public PlanetWriteBuffer(PlanetBatchWriter planetBatchWriter, MeterRegistry meterRegistry,
+                             @Value("${planets.save.coalesce.capacity:1000}") int capacity,
+                             @Value("${planets.save.coalesce.maxBatch:25}") int maxBatch,
+                             @Value("${planets.save.coalesce.window:5ms}") Duration window,
+                             @Value("${planets.save.coalesce.concurrency:4}") int concurrency) {
+        this.planetBatchWriter = planetBatchWriter;
+        this.capacity = capacity;
+        this.maxBatch = Math.min(maxBatch, PlanetBatchWriter.MAX_BATCH_SIZE);
+        this.window = window;
+        this.concurrency = concurrency;
+
+        this.buffer = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingWrite>get(capacity).get());
+
+        Gauge.builder("planets.writeBuffer.pending", this.pending, AtomicInteger::get)
+                .description("Writes waiting to be flushed or in flight")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("planets.writeBuffer.batchSize")
+                .description("Planets per coalesced BatchWriteItem")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        this.worker = this.buffer.asFlux()
+                .bufferTimeout(this.maxBatch, this.window)
+                .onBackpressureBuffer()
+                .flatMap(this::flush, this.concurrency)
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (this.worker != null) {
+            this.worker.dispose();
+        }
+    }
+
+    public Mono<Planet> write(Planet planet) {
+        return Mono.defer(() -> {
+            PendingWrite write = new PendingWrite(planet, Sinks.one());
+            if (!this.offer(write)) {
+                return Mono.error(new WriteBufferFullException());
+            }
+            return write.getDone().asMono();
+        });
+    }
+
+    private synchronized boolean offer(PendingWrite write) {
+        if (this.pending.get() >= this.capacity || this.buffer.tryEmitNext(write).isFailure()) {
+            return false;
+        }
+        this.pending.incrementAndGet();
+        return true;
+    }
+
+    private Mono<Void> flush(List<PendingWrite> writes) {
+        this.batchSize.record(writes.size());
+
+        List<Planet> planets = writes.stream()
+                .map(PendingWrite::getPlanet)
+                .collect(Collectors.toList());
+
+        return this.planetBatchWriter.putAll(planets)
+                .doOnNext(unprocessed -> {
+                    Set<String> unprocessedIds = unprocessed.stream()
+                            .map(Planet::getId)
+                            .collect(Collectors.toSet());
+                    writes.forEach(write -> {
+                        if (unprocessedIds.contains(write.getPlanet().getId())) {
+                            write.getDone().tryEmitError(new IllegalStateException("Write was not processed by DynamoDB"));
+                        } else {
+                            write.getDone().tryEmitValue(write.getPlanet());
+                        }
+                    });
+                })
+                .doOnError(ex -> writes.forEach(write -> write.getDone().tryEmitError(ex)))
+                .doFinally(signal -> this.pending.addAndGet(-writes.size()))
+                .then()
+                .onErrorResume(ex -> Mono.empty());
+    }
+
+    @Data
+    private static class PendingWrite {
+
+        private final Planet planet;
+
+        private final Sinks.One<Planet> done;
+    }
+}
@@ -0,0 +1,157 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.exception.SwapiOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps the number of SWAPI calls in flight at swapi.bulkhead.maxConcurrentCalls.
+ * <p>
+ * Calls beyond the cap wait, without holding a thread, in a FIFO queue of at most
+ * swapi.bulkhead.maxQueuedCalls. A call that finds the queue full, or that does not get a slot within
+ * swapi.bulkhead.maxWait, fails with {@link SwapiOverloadedException}.
+ */
+@Component
+public class SwapiBulkhead {
+
+    private final int maxConcurrentCalls;
+    private final int maxQueuedCalls;
+    private final Duration maxWait;
+
+    private final Deque<Waiter> waiters = new ArrayDeque<>();
+    private int inFlight;
+
+    private final Counter queueFullRejections;
+    private final Counter waitTimeoutRejections;
+
+    public SwapiBulkhead(MeterRegistry meterRegistry,
+                         @Value("${swapi.bulkhead.maxConcurrentCalls:40}") int maxConcurrentCalls,
+                         @Value("${swapi.bulkhead.maxQueuedCalls:100}") int maxQueuedCalls,
+                         @Value("${swapi.bulkhead.maxWait:1s}") Duration maxWait) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxQueuedCalls = maxQueuedCalls;
+        this.maxWait = maxWait;
+
+        Gauge.builder("swapi.bulkhead.inFlight", this, SwapiBulkhead::getInFlight)
+                .description("SWAPI calls holding a bulkhead slot")
+                .register(meterRegistry);
+        Gauge.builder("swapi.bulkhead.queued", this, SwapiBulkhead::getQueued)
+                .description("SWAPI calls waiting for a bulkhead slot")
+                .register(meterRegistry);
+        this.queueFullRejections = Counter.builder("swapi.bulkhead.rejected")
+                .description("SWAPI calls refused by the bulkhead")
+                .tag("reason", "queueFull")
+                .register(meterRegistry);
+        this.waitTimeoutRejections = Counter.builder("swapi.bulkhead.rejected")
+                .description("SWAPI calls refused by the bulkhead")
+                .tag("reason", "waitTimeout")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> limit(Mono<T> call) {
+        return this.acquire()
+                .then(Mono.defer(() -> call.doFinally(signal -> this.release())));
+    }
+
+    /**
+     * Holds the slot until the stream terminates or is cancelled.
+     */
+    public <T> Flux<T> limit(Flux<T> call) {
+        return this.acquire()
+                .thenMany(Flux.defer(() -> call.doFinally(signal -> this.release())));
+    }
+
+    public synchronized int getInFlight() {
+        return this.inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return this.waiters.size();
+    }
+
+    private Mono<Void> acquire() {
+        return Mono.<Void>create(sink -> {
+            Waiter waiter = null;
+            boolean acquired = false;
+
+            synchronized (this) {
+                if (this.inFlight < this.maxConcurrentCalls) {
+                    this.inFlight++;
+                    acquired = true;
+                } else if (this.waiters.size() < this.maxQueuedCalls) {
+                    waiter = new Waiter(sink);
+                    this.waiters.addLast(waiter);
+                }
+            }
+
+            if (acquired) {
+                sink.success();
+            } else if (waiter == null) {
+                this.queueFullRejections.increment();
+                sink.error(new SwapiOverloadedException("wait queue is full"));
+            } else {
+                Waiter queued = waiter;
+                sink.onCancel(() -> this.abandon(queued));
+            }
+        })
+                .timeout(this.maxWait, Mono.defer(() -> {
+                    this.waitTimeoutRejections.increment();
+                    return Mono.error(new SwapiOverloadedException("no slot within " + this.maxWait));
+                }));
+    }
+
+    /**
+     * Hands the slot over to the oldest waiter still interested, or frees it.
+     */
+    private void release() {
+        Waiter next;
+        synchronized (this) {
+            do {
+                next = this.waiters.pollFirst();
+            } while (next != null && !next.claim());
+
+            if (next == null) {
+                this.inFlight--;
+            }
+        }
+        if (next != null) {
+            next.sink.success();
+        }
+    }
+
+    private void abandon(Waiter waiter) {
+        if (waiter.claim()) {
+            synchronized (this) {
+                this.waiters.remove(waiter);
+            }
+        } else {
+            // the slot was handed over concurrently with the cancellation, so nobody will release it
+            this.release();
+        }
+    }
+
+    private static final class Waiter {
+
+        private final MonoSink<Void> sink;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private Waiter(MonoSink<Void> sink) {
+            this.sink = sink;
+        }
+
+        private boolean claim() {
+            return this.claimed.compareAndSet(false, true);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.exception.SwapiUnavailableException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bulkhead, timeout, retry and circuit breaking applied to every SWAPI call.
+ * <p>
+ * Every attempt first takes a {@link SwapiBulkhead} slot, so a refused attempt never reaches the
+ * breaker and is not retried.
+ * <p>
+ * Only GETs go through here, so transient failures are retried with jittered backoff.
+ * Streams are retried only while nothing has been emitted, so subscribers never see
+ * duplicates. Once retries are exhausted or the breaker is open the error surfaces as
+ * {@link SwapiUnavailableException}.
+ */
+@Component
+public class SwapiCallPolicy {
+
+    private final CircuitBreaker circuitBreaker;
+    private final SwapiBulkhead bulkhead;
+    private final Duration timeout;
+    private final int maxRetries;
+    private final Duration backoff;
+
+    public SwapiCallPolicy(CircuitBreaker swapiCircuitBreaker, SwapiBulkhead bulkhead,
+                           @Value("${swapi.call.timeout:5s}") Duration timeout,
+                           @Value("${swapi.call.retry.maxRetries:2}") int maxRetries,
+                           @Value("${swapi.call.retry.backoff:100ms}") Duration backoff) {
+        this.circuitBreaker = swapiCircuitBreaker;
+        this.bulkhead = bulkhead;
+        this.timeout = timeout;
+        this.maxRetries = maxRetries;
+        this.backoff = backoff;
+    }
+
+    public <T> Mono<T> apply(Mono<T> call) {
+        return call
+                .timeout(this.timeout)
+                .transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+                .transform(attempt -> this.bulkhead.limit(attempt))
+                .retryWhen(this.retry(() -> true))
+                .onErrorMap(SwapiCallPolicy::isUnavailable, SwapiUnavailableException::new);
+    }
+
+    /**
+     * Applies the timeout between consecutive elements, so long streams are not cut short
+     * while they keep making progress.
+     */
+    public <T> Flux<T> apply(Flux<T> call) {
+        return Flux.defer(() -> {
+            AtomicBoolean emitted = new AtomicBoolean();
+
+            return call
+                    .timeout(this.timeout)
+                    .transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+                    .transform(attempt -> this.bulkhead.limit(attempt))
+                    .doOnNext(item -> emitted.set(true))
+                    .retryWhen(this.retry(() -> !emitted.get()))
+                    .onErrorMap(SwapiCallPolicy::isUnavailable, SwapiUnavailableException::new);
+        });
+    }
+
+    private Retry retry(BooleanSupplier retryable) {
+        return Retry.backoff(this.maxRetries, this.backoff)
+                .jitter(0.5)
+                .filter(ex -> retryable.getAsBoolean() && isTransient(ex))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Failures worth retrying and counting against the breaker: timeouts, connection
+     * errors, 5xx and 429. Anything else is a problem with the request itself.
+     */
+    public static boolean isTransient(Throwable ex) {
+        if (ex instanceof WebClientResponseException) {
+            HttpStatus status = ((WebClientResponseException) ex).getStatusCode();
+            return status.is5xxServerError() || status == HttpStatus.TOO_MANY_REQUESTS;
+        }
+        return ex instanceof TimeoutException
+                || ex instanceof ReadTimeoutException
+                || ex instanceof WebClientRequestException;
+    }
+
+    private static boolean isUnavailable(Throwable ex) {
+        return ex instanceof CallNotPermittedException || isTransient(ex);
+    }
+}
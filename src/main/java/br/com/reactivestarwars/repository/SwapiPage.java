@@ -0,0 +1,14 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SwapiPage {
+
+    private final Integer count;
+
+    private final List<Planet> planets;
+}
@@ -0,0 +1,185 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Token-level parser for SWAPI planet responses.
+ * <p>
+ * Feeds the raw response buffers to Jackson's non-blocking parser and emits each
+ * element of {@code results} as soon as its closing brace is read. Only the fields
+ * a {@link Planet} needs are read; {@code films} entries are counted, everything
+ * else (residents, timestamps...) is skipped without being materialized.
+ * <p>
+ * Instances are stateful and parse a single response.
+ */
+final class SwapiPlanetParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final int ROOT_DEPTH = 1;
+    private static final int PLANET_DEPTH = 3;
+    private static final int FILM_DEPTH = 4;
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+
+    private int depth;
+    private String rootField;
+    private String planetField;
+    private Planet current;
+    private Integer count;
+
+    SwapiPlanetParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Could not create non-blocking JSON parser", ex);
+        }
+        this.feeder = (ByteArrayFeeder) this.parser.getNonBlockingInputFeeder();
+    }
+
+    /**
+     * Parses the given response body, releasing each buffer once it has been fed.
+     */
+    Flux<Planet> parse(Flux<DataBuffer> body) {
+        return body
+                .concatMapIterable(this::feed)
+                .concatWith(Flux.defer(() -> Flux.fromIterable(endOfInput())))
+                .doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release)
+                .doFinally(signal -> close());
+    }
+
+    /**
+     * Value of the top-level {@code count} field, or {@code null} if it has not been read.
+     */
+    Integer getCount() {
+        return this.count;
+    }
+
+    private List<Planet> feed(DataBuffer buffer) {
+        byte[] bytes = new byte[buffer.readableByteCount()];
+        try {
+            buffer.read(bytes);
+        } finally {
+            DataBufferUtils.release(buffer);
+        }
+
+        try {
+            this.feeder.feedInput(bytes, 0, bytes.length);
+            return parseAvailable();
+        } catch (IOException ex) {
+            throw new DecodingException("Invalid SWAPI response: " + ex.getMessage(), ex);
+        }
+    }
+
+    private List<Planet> endOfInput() {
+        this.feeder.endOfInput();
+        try {
+            return parseAvailable();
+        } catch (IOException ex) {
+            throw new DecodingException("Invalid SWAPI response: " + ex.getMessage(), ex);
+        }
+    }
+
+    private List<Planet> parseAvailable() throws IOException {
+        List<Planet> planets = Collections.emptyList();
+
+        JsonToken token;
+        while ((token = this.parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            Planet planet = onToken(token);
+            if (planet != null) {
+                if (planets.isEmpty()) {
+                    planets = new ArrayList<>();
+                }
+                planets.add(planet);
+            }
+        }
+        return planets;
+    }
+
+    private Planet onToken(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT:
+            case START_ARRAY:
+                onValue(token);
+                this.depth++;
+                if (token == JsonToken.START_OBJECT && this.depth == PLANET_DEPTH && "results".equals(this.rootField)) {
+                    this.current = new Planet();
+                    this.current.setFilmCount(0);
+                }
+                return null;
+            case END_OBJECT:
+            case END_ARRAY:
+                this.depth--;
+                if (token == JsonToken.END_OBJECT && this.depth == PLANET_DEPTH - 1 && this.current != null) {
+                    Planet planet = this.current;
+                    this.current = null;
+                    this.planetField = null;
+                    return planet;
+                }
+                return null;
+            case FIELD_NAME:
+                if (this.depth == ROOT_DEPTH) {
+                    this.rootField = this.parser.getCurrentName();
+                } else if (this.depth == PLANET_DEPTH) {
+                    this.planetField = this.parser.getCurrentName();
+                }
+                return null;
+            default:
+                onValue(token);
+                return null;
+        }
+    }
+
+    private void onValue(JsonToken token) throws IOException {
+        if (this.depth == ROOT_DEPTH) {
+            if ("count".equals(this.rootField) && token == JsonToken.VALUE_NUMBER_INT) {
+                this.count = this.parser.getIntValue();
+            }
+        } else if (this.current != null && this.depth == FILM_DEPTH) {
+            if ("films".equals(this.planetField)) {
+                this.current.setFilmCount(this.current.getFilmCount() + 1);
+            }
+        } else if (this.current != null && this.depth == PLANET_DEPTH && token.isScalarValue()) {
+            String text = token == JsonToken.VALUE_NULL ? null : this.parser.getText();
+            switch (String.valueOf(this.planetField)) {
+                case "name":
+                    this.current.setName(text);
+                    break;
+                case "climate":
+                    this.current.setClimate(text);
+                    break;
+                case "terrain":
+                    this.current.setTerrain(text);
+                    break;
+                case "url":
+                    this.current.setId(Planet.idFromUrl(text));
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void close() {
+        try {
+            this.parser.close();
+        } catch (IOException ignored) {
+            // nothing left to release, buffers are copied as they are fed
+        }
+    }
+}
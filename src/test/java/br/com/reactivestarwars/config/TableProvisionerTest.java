@@ -0,0 +1,73 @@
+package br.com.reactivestarwars.config;
+
+import br.com.reactivestarwars.health.TableProvisioningHealthIndicator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.actuate.health.Status;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+import software.amazon.awssdk.services.dynamodb.model.TableStatus;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+
+public class TableProvisionerTest {
+
+    private final DynamoDbAsyncClient dbClient = Mockito.mock(DynamoDbAsyncClient.class);
+
+    private final TableProvisioner tableProvisioner = new TableProvisioner(this.dbClient);
+
+    private final TableProvisioningHealthIndicator healthIndicator = new TableProvisioningHealthIndicator(this.tableProvisioner);
+
+    @AfterEach
+    public void tearDown() {
+        this.tableProvisioner.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void start_retriesUntilTablesAreActive() {
+        DynamoDbAsyncTable<Object> table = Mockito.mock(DynamoDbAsyncTable.class);
+        Mockito.when(table.tableName()).thenReturn("Planet");
+        Mockito.when(table.createTable(any(Consumer.class))).thenReturn(CompletableFuture.completedFuture(null));
+
+        // DynamoDB unreachable, then reachable without the table, then the created table comes up
+        Mockito.when(this.dbClient.describeTable(any(DescribeTableRequest.class))).thenReturn(
+                CompletableFuture.<DescribeTableResponse>failedFuture(SdkClientException.create("Connection refused")),
+                CompletableFuture.<DescribeTableResponse>failedFuture(ResourceNotFoundException.builder().message("Planet").build()),
+                CompletableFuture.completedFuture(describe(TableStatus.CREATING)),
+                CompletableFuture.completedFuture(describe(TableStatus.ACTIVE)));
+
+        this.tableProvisioner.register(table, builder -> {
+        });
+        this.tableProvisioner.start();
+
+        assertFalse(this.tableProvisioner.isReady());
+        assertEquals(Status.DOWN, this.healthIndicator.health().getStatus());
+
+        // created but still CREATING: not ready yet
+        Mockito.verify(this.dbClient, Mockito.timeout(5000).atLeast(3)).describeTable(any(DescribeTableRequest.class));
+        Mockito.verify(table).createTable(any(Consumer.class));
+        assertEquals(Status.DOWN, this.healthIndicator.health().getStatus());
+
+        this.tableProvisioner.ready().block(Duration.ofSeconds(10));
+
+        assertTrue(this.tableProvisioner.isReady());
+        assertEquals(Status.UP, this.healthIndicator.health().getStatus());
+    }
+
+    private static DescribeTableResponse describe(TableStatus status) {
+        return DescribeTableResponse.builder()
+                .table(table -> table.tableName("Planet").tableStatus(status))
+                .build();
+    }
+}
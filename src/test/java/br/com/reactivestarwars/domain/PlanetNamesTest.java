@@ -0,0 +1,23 @@
+package br.com.reactivestarwars.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlanetNamesTest {
+
+    @Test
+    public void normalize() {
+        assertEquals("tatooine", PlanetNames.normalize("Tatooine"));
+        assertEquals("tatooine", PlanetNames.normalize(" TATO\u00D6INE "));
+        assertEquals("yavin iv", PlanetNames.normalize("Yavin \t IV"));
+        assertNull(PlanetNames.normalize("   "));
+        assertNull(PlanetNames.normalize(null));
+    }
+
+    @Test
+    public void bucket() {
+        assertEquals("t", PlanetNames.bucket("tatooine"));
+        assertNull(PlanetNames.bucket(null));
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.reactivestarwars.domain;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.enhanced.dynamodb.TableMetadata;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlanetTableSchemaTest {
+
+    @Test
+    public void roundTrip() {
+        Planet planet = new Planet();
+        planet.setId("1");
+        planet.setName("Tatooine");
+        planet.setClimate("arid");
+        planet.setTerrain("desert");
+        planet.setFilmCount(5);
+
+        Map<String, AttributeValue> item = PlanetTableSchema.INSTANCE.itemToMap(planet, true);
+
+        assertEquals("1", item.get("id").s());
+        assertEquals("Tatooine", item.get("name").s());
+        assertEquals("5", item.get("filmCount").n());
+        assertEquals("t", item.get(PlanetTableSchema.NAME_BUCKET).s());
+        assertEquals("tatooine", item.get(PlanetTableSchema.NORMALIZED_NAME).s());
+        assertEquals(planet, PlanetTableSchema.INSTANCE.mapToItem(item));
+    }
+
+    @Test
+    public void keys() {
+        TableMetadata metadata = PlanetTableSchema.INSTANCE.tableMetadata();
+
+        assertEquals("id", metadata.primaryPartitionKey());
+        assertEquals("name", metadata.indexPartitionKey(PlanetTableSchema.NAME_INDEX));
+        assertEquals(PlanetTableSchema.NAME_BUCKET, metadata.indexPartitionKey(PlanetTableSchema.NORMALIZED_NAME_INDEX));
+        assertEquals(PlanetTableSchema.NORMALIZED_NAME, metadata.indexSortKey(PlanetTableSchema.NORMALIZED_NAME_INDEX).orElse(null));
+    }
+}
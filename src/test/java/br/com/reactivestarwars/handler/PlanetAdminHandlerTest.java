@@ -0,0 +1,188 @@
+package br.com.reactivestarwars.handler;
+
+import br.com.reactivestarwars.LocalDynamoExtension;
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.MigrationResult;
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetStats;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import br.com.reactivestarwars.repository.PlanetRemoteRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@ExtendWith(LocalDynamoExtension.class)
+@SpringBootTest
+@AutoConfigureWebTestClient
+@DirtiesContext
+public class PlanetAdminHandlerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DynamoDbEnhancedAsyncClient enhancedDbClient;
+
+    @Autowired
+    private DynamoDbAsyncClient dbClient;
+
+    @Autowired
+    private TableProvisioner tableProvisioner;
+
+    private DynamoDbAsyncTable<Planet> table;
+
+    @MockBean
+    private PlanetRemoteRepository planetRemoteRepository;
+
+    @BeforeEach
+    public void setUp() {
+        this.tableProvisioner.ready().block(Duration.ofSeconds(30));
+        this.table = enhancedDbClient.table(Planet.class.getSimpleName(), PlanetTableSchema.INSTANCE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.table.scan()
+                .items()
+                .subscribe(planet -> table.deleteItem(planet).join())
+                .join();
+    }
+
+    @Test
+    public void export() {
+
+        for (String name : List.of("Alderaan", "Tatooine", "Hoth", "Dagobah", "Bespin")) {
+            Planet planet = new Planet();
+            planet.setId(UUID.randomUUID().toString());
+            planet.setName(name);
+            this.table.putItem(planet).join();
+        }
+
+        EntityExchangeResult<List<Planet>> result = webTestClient.get()
+                .uri("/admin/planets/export?segments=3")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Planet.class)
+                .returnResult();
+
+        assertNotNull(result.getResponseBody());
+        assertEquals(Set.of("Alderaan", "Tatooine", "Hoth", "Dagobah", "Bespin"), result.getResponseBody().stream()
+                .map(Planet::getName)
+                .collect(Collectors.toSet()));
+    }
+
+    @Test
+    public void rebuildStats() {
+        putPlanet("Hoth", "frozen", "tundra, ice caves", 1);
+        putPlanet("Tatooine", "arid", "desert", 5);
+        putPlanet("Jakku", "arid", "desert", null);
+
+        PlanetStats stats = webTestClient.post()
+                .uri("/admin/planets/stats/rebuild")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PlanetStats.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(stats);
+        assertEquals(3, stats.getTotal());
+        assertEquals(Map.of("arid", 2L, "frozen", 1L), stats.getByClimate());
+        assertEquals(Map.of("desert", 2L, "tundra", 1L, "ice caves", 1L), stats.getByTerrain());
+        assertEquals(Map.of("1", 1L, "5", 1L, "unknown", 1L), stats.getByFilmCount());
+
+        webTestClient.get()
+                .uri("/planets/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PlanetStats.class)
+                .isEqualTo(stats);
+    }
+
+    private void putPlanet(String name, String climate, String terrain, Integer filmCount) {
+        Planet planet = new Planet();
+        planet.setId(UUID.randomUUID().toString());
+        planet.setName(name);
+        planet.setClimate(climate);
+        planet.setTerrain(terrain);
+        planet.setFilmCount(filmCount);
+        this.table.putItem(planet).join();
+    }
+
+    @Test
+    public void migrateNormalizedName() {
+
+        String id = UUID.randomUUID().toString();
+        this.dbClient.putItem(request -> request
+                .tableName(Planet.class.getSimpleName())
+                .item(Map.of("id", AttributeValue.builder().s(id).build(),
+                        "name", AttributeValue.builder().s("Dagobah").build())))
+                .join();
+
+        webTestClient.get()
+                .uri("/planets?name=dagobah")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .hasSize(0);
+
+        webTestClient.post()
+                .uri("/admin/planets/migrations/normalized-name")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MigrationResult.class)
+                .isEqualTo(new MigrationResult(1, 1, 0, 0));
+
+        webTestClient.get()
+                .uri("/planets?name=dagobah")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .hasSize(1);
+
+        webTestClient.post()
+                .uri("/admin/planets/migrations/normalized-name")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(MigrationResult.class)
+                .isEqualTo(new MigrationResult(0, 0, 0, 0));
+    }
+
+    @Test
+    public void export_empty() {
+
+        EntityExchangeResult<List<Planet>> result = webTestClient.get()
+                .uri("/admin/planets/export")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult();
+
+        assertNotNull(result.getResponseBody());
+        assertEquals(0, result.getResponseBody().size());
+    }
+}
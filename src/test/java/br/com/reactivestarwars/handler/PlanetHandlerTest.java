@@ -1,7 +1,13 @@
 package br.com.reactivestarwars.handler;
 
 import br.com.reactivestarwars.LocalDynamoExtension;
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.BatchItemResult;
 import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetChange;
+import br.com.reactivestarwars.domain.PlanetStats;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import br.com.reactivestarwars.repository.PlanetIdempotencyRepository;
 import br.com.reactivestarwars.repository.PlanetRemoteRepository;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,19 +18,34 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.FluxExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.util.comparator.Comparators;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
-import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.only;
@@ -33,6 +54,7 @@ import static org.mockito.Mockito.verify;
 @ExtendWith(LocalDynamoExtension.class)
 @SpringBootTest
 @AutoConfigureWebTestClient
+@DirtiesContext
 public class PlanetHandlerTest {
 
     @Autowired
@@ -41,6 +63,12 @@ public class PlanetHandlerTest {
     @Autowired
     private DynamoDbEnhancedAsyncClient enhancedDbClient;
 
+    @Autowired
+    private DynamoDbAsyncClient dbClient;
+
+    @Autowired
+    private TableProvisioner tableProvisioner;
+
     private DynamoDbAsyncTable<Planet> table;
 
     @MockBean
@@ -48,7 +76,8 @@ public class PlanetHandlerTest {
 
     @BeforeEach
     public void setUp() {
-        this.table = enhancedDbClient.table(Planet.class.getSimpleName(), TableSchema.fromBean(Planet.class));
+        this.tableProvisioner.ready().block(Duration.ofSeconds(30));
+        this.table = enhancedDbClient.table(Planet.class.getSimpleName(), PlanetTableSchema.INSTANCE);
 
     }
 
@@ -93,6 +122,58 @@ public class PlanetHandlerTest {
         verify(this.planetRemoteRepository, only()).getFilmCount("Earth");
     }
 
+    @Test
+    public void create_withoutName() {
+
+        Planet planet = new Planet();
+        planet.setClimate("temperate");
+
+        // the name guard returns before the mocked SWAPI client would be used
+        Mockito.when(this.planetRemoteRepository.getFilmCount(Mockito.isNull())).thenCallRealMethod();
+
+        Planet created = webTestClient.post()
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(created);
+        assertNotNull(created.getId());
+        assertNull(created.getName());
+        assertEquals(0, created.getFilmCount());
+    }
+
+    @Test
+    public void create_ignoresClientFilmCountWhenSwapiIsDown() {
+
+        Planet planet = new Planet();
+        planet.setName("Kamino");
+        planet.setClimate("temperate");
+        planet.setFilmCount(99);
+
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Kamino")).thenReturn(Mono.empty());
+
+        Planet created = webTestClient.post()
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(created);
+        assertNull(created.getFilmCount());
+
+        Planet stored = this.table.getItem(Key.builder().partitionValue(created.getId()).build()).join();
+        assertNull(stored.getFilmCount());
+    }
+
     @Test
     public void create_WithFilms() {
 
@@ -125,6 +206,67 @@ public class PlanetHandlerTest {
         verify(this.planetRemoteRepository, only()).getFilmCount("Tatooine");
     }
 
+    @Test
+    public void createBatch() {
+
+        Planet planet = new Planet();
+        planet.setName("Tatooine");
+        planet.setClimate("arid");
+        planet.setTerrain("desert");
+
+        Planet planet2 = new Planet();
+        planet2.setName("Alderaan");
+        planet2.setClimate("temperate");
+        planet2.setTerrain("grasslands, mountains");
+
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Alderaan")).thenReturn(Mono.just(2));
+
+        EntityExchangeResult<List<BatchItemResult>> result = webTestClient.post()
+                .uri("/planets/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(planet, planet2))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BatchItemResult.class)
+                .returnResult();
+
+        assertNotNull(result.getResponseBody());
+        assertEquals(2, result.getResponseBody().size());
+        assertTrue(result.getResponseBody().stream()
+                .allMatch(item -> item.getStatus() == BatchItemResult.Status.CREATED && item.getId() != null));
+
+        List<Planet> storedPlanets = Flux.from(this.table.scan().items()).collectList().block();
+
+        assertNotNull(storedPlanets);
+        assertEquals(2, storedPlanets.size());
+        storedPlanets.sort(Comparator.comparing(Planet::getName));
+        assertEquals(2, storedPlanets.get(0).getFilmCount());
+        assertEquals(5, storedPlanets.get(1).getFilmCount());
+    }
+
+    @Test
+    public void createBatch_ndjson() {
+
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Earth")).thenReturn(Mono.just(0));
+
+        EntityExchangeResult<List<BatchItemResult>> result = webTestClient.post()
+                .uri("/planets/batch")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue("{\"name\":\"Tatooine\",\"climate\":\"arid\",\"terrain\":\"desert\"}\n" +
+                        "{\"name\":\"Earth\",\"climate\":\"temperate\",\"terrain\":\"grasslands, mountains\"}\n")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BatchItemResult.class)
+                .returnResult();
+
+        assertNotNull(result.getResponseBody());
+        assertEquals(2, result.getResponseBody().size());
+        assertTrue(result.getResponseBody().stream()
+                .allMatch(item -> item.getStatus() == BatchItemResult.Status.CREATED));
+    }
 
     @Test
     public void findAll_notFound() {
@@ -186,6 +328,215 @@ public class PlanetHandlerTest {
 
 
     }
+    @Test
+    public void findAll_ndjson() {
+
+        Planet planet = new Planet();
+        planet.setId(UUID.randomUUID().toString());
+        planet.setName("Alderaan");
+        planet.setTerrain("grasslands, mountains");
+        planet.setClimate("temperate");
+        planet.setFilmCount(2);
+
+        Planet planet2 = new Planet();
+        planet2.setId(UUID.randomUUID().toString());
+        planet2.setName("Tatooine");
+        planet2.setClimate("arid");
+        planet2.setTerrain("desert");
+        planet2.setFilmCount(5);
+
+        this.table.putItem(planet).join();
+        this.table.putItem(planet2).join();
+
+        EntityExchangeResult<List<Planet>> result = webTestClient.get()
+                .uri("/planets")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(Planet.class)
+                .returnResult();
+
+        assertNotNull(result.getResponseBody());
+        assertEquals(2, result.getResponseBody().size());
+    }
+
+    @Test
+    public void findAll_paginated() {
+
+        for (String name : List.of("Alderaan", "Tatooine", "Hoth")) {
+            Planet planet = new Planet();
+            planet.setId(UUID.randomUUID().toString());
+            planet.setName(name);
+            this.table.putItem(planet).join();
+        }
+
+        EntityExchangeResult<List<Planet>> firstPage = webTestClient.get()
+                .uri("/planets?limit=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult();
+
+        String cursor = firstPage.getResponseHeaders().getFirst(PlanetHandler.NEXT_CURSOR_HEADER);
+
+        assertNotNull(firstPage.getResponseBody());
+        assertEquals(2, firstPage.getResponseBody().size());
+        assertNotNull(cursor);
+
+        EntityExchangeResult<List<Planet>> secondPage = webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/planets")
+                        .queryParam("limit", 2)
+                        .queryParam("cursor", cursor)
+                        .build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult();
+
+        assertNotNull(secondPage.getResponseBody());
+        assertEquals(1, secondPage.getResponseBody().size());
+
+        Set<String> names = new HashSet<>();
+        firstPage.getResponseBody().forEach(planet -> names.add(planet.getName()));
+        secondPage.getResponseBody().forEach(planet -> names.add(planet.getName()));
+        assertEquals(Set.of("Alderaan", "Tatooine", "Hoth"), names);
+    }
+
+    @Test
+    public void findAll_invalidCursor() {
+        webTestClient.get()
+                .uri("/planets?cursor=not-a-cursor")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        // a cursor without the key of the index being queried
+        String scanCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"id\":\"1\"}".getBytes(StandardCharsets.UTF_8));
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/planets")
+                        .queryParam("name", "tatooine")
+                        .queryParam("cursor", scanCursor)
+                        .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        String emptyKeyCursor = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString("{\"id\":\"\"}".getBytes(StandardCharsets.UTF_8));
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/planets")
+                        .queryParam("cursor", emptyKeyCursor)
+                        .build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void findAll_cursorOfAnotherNameSearch() {
+
+        this.putPlanet("Tatooine", "arid", "desert", 5);
+        this.putPlanet("Tatooine", "arid", "desert", 5);
+
+        String cursor = webTestClient.get()
+                .uri("/planets?name=Tatooine&limit=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult()
+                .getResponseHeaders()
+                .getFirst(PlanetHandler.NEXT_CURSOR_HEADER);
+
+        assertNotNull(cursor);
+
+        // another bucket, the same bucket under another name, and a prefix the cursor is outside of
+        for (Map.Entry<String, String> search : List.of(Map.entry("name", "Hoth"), Map.entry("name", "Tund"),
+                Map.entry("namePrefix", "h"), Map.entry("namePrefix", "tu"))) {
+            webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder.path("/planets")
+                            .queryParam(search.getKey(), search.getValue())
+                            .queryParam("cursor", cursor)
+                            .build())
+                    .exchange()
+                    .expectStatus().isBadRequest();
+        }
+
+        webTestClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/planets")
+                        .queryParam("namePrefix", "tat")
+                        .queryParam("cursor", cursor)
+                        .build())
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    public void findAll_filtered() {
+
+        this.putPlanet("Alderaan", "temperate", "grasslands, mountains", 2);
+        this.putPlanet("Yavin IV", "temperate, tropical", "jungle, rainforests", 1);
+        this.putPlanet("Tatooine", "arid", "desert", 5);
+
+        List<Planet> temperate = webTestClient.get()
+                .uri("/planets?climate=temperate&minFilms=2")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(temperate);
+        assertEquals(1, temperate.size());
+        assertEquals("Alderaan", temperate.get(0).getName());
+
+        List<Planet> fewFilms = webTestClient.get()
+                .uri("/planets?terrain=jungle&maxFilms=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(fewFilms);
+        assertEquals(1, fewFilms.size());
+        assertEquals("Yavin IV", fewFilms.get(0).getName());
+    }
+
+    @Test
+    public void findAll_projection() {
+
+        Planet planet = this.putPlanet("Tatooine", "arid", "desert", 5);
+
+        webTestClient.get()
+                .uri("/planets?name=Tatooine&fields=name,filmCount")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(1)
+                .jsonPath("$[0].id").isEqualTo(planet.getId())
+                .jsonPath("$[0].name").isEqualTo("Tatooine")
+                .jsonPath("$[0].filmCount").isEqualTo(5)
+                .jsonPath("$[0].climate").doesNotExist()
+                .jsonPath("$[0].terrain").doesNotExist();
+    }
+
+    @Test
+    public void findAll_invalidFilters() {
+        webTestClient.get()
+                .uri("/planets?fields=name,population")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get()
+                .uri("/planets?minFilms=3&maxFilms=1")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get()
+                .uri("/planets?minFilms=-1&limit=10")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     public void searchByName() {
 
@@ -225,6 +576,51 @@ public class PlanetHandlerTest {
 
     }
 
+    @Test
+    public void searchByName_caseAndAccentInsensitive() {
+
+        this.putPlanet("Tatooine", "arid", "desert", 5);
+        this.putPlanet("Naboo", "temperate", "grassy hills, swamps, forests, mountains", 4);
+
+        for (String name : List.of("tatooine", "TATOOINE", " Tato\u00F6ine ")) {
+            List<Planet> result = webTestClient.get()
+                    .uri(uriBuilder -> uriBuilder.path("/planets").queryParam("name", name).build())
+                    .exchange()
+                    .expectStatus().isOk()
+                    .expectBodyList(Planet.class)
+                    .returnResult()
+                    .getResponseBody();
+
+            assertNotNull(result);
+            assertEquals(1, result.size());
+            assertEquals("Tatooine", result.get(0).getName());
+        }
+    }
+
+    @Test
+    public void searchByNamePrefix() {
+
+        this.putPlanet("Tatooine", "arid", "desert", 5);
+        this.putPlanet("Taris", "temperate", "cityscape", 0);
+        this.putPlanet("Naboo", "temperate", "grassy hills, swamps, forests, mountains", 4);
+
+        List<Planet> result = webTestClient.get()
+                .uri("/planets?namePrefix=ta")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(result);
+        assertEquals(Set.of("Tatooine", "Taris"), result.stream().map(Planet::getName).collect(Collectors.toSet()));
+
+        webTestClient.get()
+                .uri("/planets?name=Tatooine&namePrefix=Ta")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
     @Test
     public void findOne_notFound() {
         webTestClient.get()
@@ -296,6 +692,418 @@ public class PlanetHandlerTest {
         assertEquals(2, result.getResponseBody().getFilmCount());
     }
 
+    @Test
+    public void deleteAll_byIds() {
+        Planet hoth = putPlanet("Hoth", "frozen", "tundra", 1);
+        Planet tatooine = putPlanet("Tatooine", "arid", "desert", 5);
+        Planet naboo = putPlanet("Naboo", "temperate", "swamps", 4);
+        String missingId = UUID.randomUUID().toString();
+
+        EntityExchangeResult<List<BatchItemResult>> result = webTestClient.method(HttpMethod.DELETE)
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(hoth.getId(), tatooine.getId(), missingId))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .expectBodyList(BatchItemResult.class)
+                .returnResult();
+
+        assertNotNull(result.getResponseBody());
+        Map<String, BatchItemResult.Status> statuses = result.getResponseBody().stream()
+                .collect(Collectors.toMap(BatchItemResult::getId, BatchItemResult::getStatus));
+        assertEquals(Map.of(hoth.getId(), BatchItemResult.Status.DELETED,
+                tatooine.getId(), BatchItemResult.Status.DELETED,
+                missingId, BatchItemResult.Status.NOT_FOUND), statuses);
+
+        List<Planet> remaining = Flux.from(this.table.scan().items()).collectList().block();
+        assertNotNull(remaining);
+        assertEquals(List.of(naboo.getId()), remaining.stream().map(Planet::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void deleteAll_byName() {
+        putPlanet("Hoth", "frozen", "tundra", 1);
+        putPlanet("Hoth", "frozen", "ice caves", 1);
+        Planet tatooine = putPlanet("Tatooine", "arid", "desert", 5);
+
+        EntityExchangeResult<List<BatchItemResult>> result = webTestClient.method(HttpMethod.DELETE)
+                .uri("/planets?name=Hoth")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(BatchItemResult.class)
+                .returnResult();
+
+        assertNotNull(result.getResponseBody());
+        assertEquals(2, result.getResponseBody().size());
+        assertTrue(result.getResponseBody().stream()
+                .allMatch(item -> item.getStatus() == BatchItemResult.Status.DELETED));
+
+        List<Planet> remaining = Flux.from(this.table.scan().items()).collectList().block();
+        assertNotNull(remaining);
+        assertEquals(List.of(tatooine.getId()), remaining.stream().map(Planet::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void deleteAll_invalidRequest() {
+        webTestClient.method(HttpMethod.DELETE)
+                .uri("/planets")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.method(HttpMethod.DELETE)
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[\"\"]")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void stats_trackCreatesAndDeletes() {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Kashyyyk")).thenReturn(Mono.just(1));
+        PlanetStats before = getStats();
+
+        Planet planet = new Planet();
+        planet.setName("Kashyyyk");
+        planet.setClimate("tropical");
+        planet.setTerrain("jungle, forests");
+
+        Planet created = webTestClient.post()
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(created);
+
+        PlanetStats afterCreate = getStats();
+        assertEquals(before.getTotal() + 1, afterCreate.getTotal());
+        assertEquals(before.getByClimate().getOrDefault("tropical", 0L) + 1, afterCreate.getByClimate().get("tropical"));
+        assertEquals(before.getByTerrain().getOrDefault("jungle", 0L) + 1, afterCreate.getByTerrain().get("jungle"));
+        assertEquals(before.getByTerrain().getOrDefault("forests", 0L) + 1, afterCreate.getByTerrain().get("forests"));
+        assertEquals(before.getByFilmCount().getOrDefault("1", 0L) + 1, afterCreate.getByFilmCount().get("1"));
+
+        webTestClient.delete()
+                .uri("/planets/" + created.getId())
+                .exchange()
+                .expectStatus().isOk();
+
+        assertEquals(before, getStats());
+    }
+
+    @Test
+    public void changes_streamsCreatedPlanets() {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Mustafar")).thenReturn(Mono.just(1));
+
+        FluxExchangeResult<PlanetChange> changes = webTestClient.get()
+                .uri("/planets/changes")
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(PlanetChange.class);
+
+        Planet planet = new Planet();
+        planet.setName("Mustafar");
+        webTestClient.post()
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isCreated();
+
+        StepVerifier.create(changes.getResponseBody())
+                .assertNext(change -> {
+                    assertEquals(PlanetChange.Type.CREATED, change.getType());
+                    assertEquals("Mustafar", change.getPlanet().getName());
+                    assertNotNull(change.getId());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void patch_updatesOnlyGivenAttributes() {
+        Planet planet = putPlanet("Hoth", "frozen", "tundra", 1);
+
+        Planet patched = webTestClient.patch()
+                .uri("/planets/" + planet.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("climate", "frozen, windy"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"")
+                .expectBody(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(patched);
+        assertEquals("Hoth", patched.getName());
+        assertEquals("frozen, windy", patched.getClimate());
+        assertEquals("tundra", patched.getTerrain());
+        assertEquals(1, patched.getFilmCount());
+        assertEquals(1L, patched.getVersion());
+        assertEquals(patched, this.table.getItem(Key.builder().partitionValue(planet.getId()).build()).join());
+        verify(this.planetRemoteRepository, Mockito.never()).getFilmCount(Mockito.anyString());
+
+        webTestClient.patch()
+                .uri("/planets/" + planet.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("climate", "temperate"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+    }
+
+    @Test
+    public void put_renameRecomputesFilmCount() {
+        Planet planet = putPlanet("Hoth", "frozen", "tundra", 1);
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+
+        Planet replacement = new Planet();
+        replacement.setName("Tatooine");
+        replacement.setClimate("arid");
+
+        Planet updated = webTestClient.put()
+                .uri("/planets/" + planet.getId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(replacement)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(updated);
+        assertEquals("Tatooine", updated.getName());
+        assertEquals("arid", updated.getClimate());
+        assertNull(updated.getTerrain());
+        assertEquals(5, updated.getFilmCount());
+
+        List<Planet> found = webTestClient.get()
+                .uri("/planets?name=tatooine")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(found);
+        assertEquals(List.of(planet.getId()), found.stream().map(Planet::getId).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void update_preconditions() {
+        Planet planet = putPlanet("Hoth", "frozen", "tundra", 1);
+
+        webTestClient.patch()
+                .uri("/planets/" + planet.getId())
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("climate", "temperate"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_REQUIRED);
+
+        webTestClient.patch()
+                .uri("/planets/" + planet.getId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("filmCount", 3))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.patch()
+                .uri("/planets/" + UUID.randomUUID())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("climate", "temperate"))
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    public void update_weakIfMatchNeverMatches() {
+        Planet planet = putPlanet("Hoth", "frozen", "tundra", 1);
+
+        webTestClient.patch()
+                .uri("/planets/" + planet.getId())
+                .header(HttpHeaders.IF_MATCH, "W/\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("climate", "temperate"))
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+        webTestClient.patch()
+                .uri("/planets/" + planet.getId())
+                .header(HttpHeaders.IF_MATCH, "\"0\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("climate", "temperate"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"1\"");
+    }
+
+    @Test
+    public void create_idempotencyKeyReplaysFirstResponse() {
+        Planet planet = new Planet();
+        planet.setName("Dagobah");
+        planet.setClimate("murky");
+        planet.setTerrain("swamp, jungles");
+
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Dagobah")).thenReturn(Mono.just(3));
+
+        String key = UUID.randomUUID().toString();
+        EntityExchangeResult<Planet> first = webTestClient.post()
+                .uri("/planets")
+                .header(PlanetHandler.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(PlanetHandler.IDEMPOTENT_REPLAYED_HEADER, "false")
+                .expectBody(Planet.class)
+                .returnResult();
+
+        EntityExchangeResult<Planet> replayed = webTestClient.post()
+                .uri("/planets")
+                .header(PlanetHandler.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(PlanetHandler.IDEMPOTENT_REPLAYED_HEADER, "true")
+                .expectBody(Planet.class)
+                .returnResult();
+
+        assertNotNull(first.getResponseBody());
+        assertEquals(first.getResponseBody(), replayed.getResponseBody());
+        assertEquals(first.getResponseHeaders().getLocation(), replayed.getResponseHeaders().getLocation());
+        assertEquals(first.getResponseHeaders().getETag(), replayed.getResponseHeaders().getETag());
+        assertEquals(3, replayed.getResponseBody().getFilmCount());
+
+        verify(this.planetRemoteRepository, only()).getFilmCount("Dagobah");
+
+        List<Planet> found = webTestClient.get()
+                .uri("/planets?name=dagobah")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(found);
+        assertEquals(1, found.size());
+    }
+
+    @Test
+    public void create_idempotencyKeyTakeoverReusesReservedPlanet() {
+        // a request that wrote its planet, then was cancelled before completing its key
+        Planet planet = putPlanet("Naboo", "temperate", "swamps", 4);
+        Planet request = new Planet();
+        request.setName("Naboo");
+        request.setClimate("temperate");
+        request.setTerrain("swamps");
+
+        String key = UUID.randomUUID().toString();
+        long staleReservedAt = System.currentTimeMillis() - Duration.ofHours(1).toMillis();
+        this.dbClient.putItem(builder -> builder
+                .tableName("PlanetIdempotency")
+                .item(Map.of(
+                        "key", AttributeValue.builder().s(key).build(),
+                        "status", AttributeValue.builder().s("IN_PROGRESS").build(),
+                        "requestHash", AttributeValue.builder().s(PlanetIdempotencyRepository.fingerprint(request)).build(),
+                        "planetId", AttributeValue.builder().s(planet.getId()).build(),
+                        "reservedAt", AttributeValue.builder().n(Long.toString(staleReservedAt)).build(),
+                        "expiresAt", AttributeValue.builder().n(Long.toString(staleReservedAt / 1000 + 86400)).build())))
+                .join();
+
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Naboo")).thenReturn(Mono.just(4));
+
+        Planet created = webTestClient.post()
+                .uri("/planets")
+                .header(PlanetHandler.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class)
+                .returnResult()
+                .getResponseBody();
+
+        assertNotNull(created);
+        assertEquals(planet.getId(), created.getId());
+
+        List<Planet> found = webTestClient.get()
+                .uri("/planets?name=naboo")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(Planet.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(found);
+        assertEquals(1, found.size());
+
+        webTestClient.post()
+                .uri("/planets")
+                .header(PlanetHandler.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(request)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().valueEquals(PlanetHandler.IDEMPOTENT_REPLAYED_HEADER, "true")
+                .expectBody(Planet.class)
+                .value(replayed -> assertEquals(planet.getId(), replayed.getId()));
+    }
+
+    @Test
+    public void create_idempotencyKeyReusedWithAnotherBody() {
+        Mockito.when(this.planetRemoteRepository.getFilmCount(Mockito.anyString())).thenReturn(Mono.just(1));
+
+        Planet planet = new Planet();
+        planet.setName("Endor");
+        planet.setClimate("temperate");
+
+        String key = UUID.randomUUID().toString();
+        webTestClient.post()
+                .uri("/planets")
+                .header(PlanetHandler.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isCreated();
+
+        planet.setClimate("arid");
+        webTestClient.post()
+                .uri("/planets")
+                .header(PlanetHandler.IDEMPOTENCY_KEY_HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        webTestClient.post()
+                .uri("/planets")
+                .header(PlanetHandler.IDEMPOTENCY_KEY_HEADER, "")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    private PlanetStats getStats() {
+        PlanetStats stats = webTestClient.get()
+                .uri("/planets/stats")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(PlanetStats.class)
+                .returnResult()
+                .getResponseBody();
+        assertNotNull(stats);
+        return stats;
+    }
+
     @Test
     public void getRemote_withoutPage() {
 
@@ -349,6 +1157,17 @@ public class PlanetHandlerTest {
         verify(this.planetRemoteRepository, only()).getPlanets(1);
     }
 
+    private Planet putPlanet(String name, String climate, String terrain, int filmCount) {
+        Planet planet = new Planet();
+        planet.setId(UUID.randomUUID().toString());
+        planet.setName(name);
+        planet.setClimate(climate);
+        planet.setTerrain(terrain);
+        planet.setFilmCount(filmCount);
+        this.table.putItem(planet).join();
+        return planet;
+    }
+
     private Flux<Planet> createPlanets() {
         Planet planet = new Planet();
         planet.setId(UUID.randomUUID().toString());
@@ -0,0 +1,91 @@
+package br.com.reactivestarwars.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FilmCountCacheTest {
+
+    private FilmCountCache filmCountCache;
+
+    @BeforeEach
+    public void setUp() {
+        this.filmCountCache = new FilmCountCache(Duration.ofHours(1), Duration.ofMinutes(5), 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void get_coalescesConcurrentLookups() {
+
+        AtomicInteger remoteCalls = new AtomicInteger();
+
+        Flux<Integer> result = Flux.range(0, 500)
+                .flatMap(i -> this.filmCountCache.get(i % 2 == 0 ? "Tatooine" : "TATOOINE", name -> {
+                    remoteCalls.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(100)).thenReturn(5);
+                }));
+
+        StepVerifier.create(result)
+                .expectNextCount(500)
+                .verifyComplete();
+
+        assertEquals(1, remoteCalls.get());
+    }
+
+    @Test
+    public void get_loadsTrimmedName() {
+
+        StepVerifier.create(this.filmCountCache.get(" Tatooine ", name -> Mono.just("Tatooine".equals(name) ? 5 : 0)))
+                .expectNext(5)
+                .verifyComplete();
+
+        StepVerifier.create(this.filmCountCache.get("Tatooine", name -> Mono.just(0)))
+                .expectNext(5)
+                .verifyComplete();
+    }
+
+    @Test
+    public void get_cachesZeroFilmCount() {
+
+        AtomicInteger remoteCalls = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(this.filmCountCache.get("Earth", name -> {
+                remoteCalls.incrementAndGet();
+                return Mono.just(0);
+            }))
+                    .expectNext(0)
+                    .verifyComplete();
+        }
+
+        assertEquals(1, remoteCalls.get());
+    }
+
+    @Test
+    public void get_doesNotCacheErrors() {
+
+        AtomicInteger remoteCalls = new AtomicInteger();
+
+        StepVerifier.create(this.filmCountCache.get("Tatooine", name -> {
+            remoteCalls.incrementAndGet();
+            return Mono.error(new IllegalStateException("unavailable"));
+        }))
+                .verifyError(IllegalStateException.class);
+
+        StepVerifier.create(this.filmCountCache.get("Tatooine", name -> {
+            remoteCalls.incrementAndGet();
+            return Mono.just(5);
+        }))
+                .expectNext(5)
+                .verifyComplete();
+
+        assertEquals(2, remoteCalls.get());
+    }
+}
@@ -0,0 +1,219 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.LocalDynamoExtension;
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetTableSchema;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(LocalDynamoExtension.class)
+@SpringBootTest(properties = {
+        "planets.filmCount.async=true",
+        "planets.filmCount.queue.window=10ms",
+        "planets.filmCount.queue.retryBackoff=10ms",
+        "planets.filmCount.queue.maxAttempts=2"
+})
+@AutoConfigureWebTestClient
+@DirtiesContext
+public class FilmCountEnrichmentQueueTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private DynamoDbEnhancedAsyncClient enhancedDbClient;
+
+    @Autowired
+    private TableProvisioner tableProvisioner;
+
+    @Autowired
+    private FilmCountEnrichmentQueue enrichmentQueue;
+
+    private DynamoDbAsyncTable<Planet> table;
+
+    @MockBean
+    private PlanetRemoteRepository planetRemoteRepository;
+
+    @BeforeEach
+    public void setUp() {
+        this.tableProvisioner.ready().block(Duration.ofSeconds(30));
+        this.table = enhancedDbClient.table(Planet.class.getSimpleName(), PlanetTableSchema.INSTANCE);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.table.scan()
+                .items()
+                .subscribe(planet -> table.deleteItem(planet).join())
+                .join();
+    }
+
+    @Test
+    public void create_backfillsFilmCount() throws InterruptedException {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+
+        Planet created = this.create("Tatooine");
+
+        assertNotNull(created.getId());
+        assertNull(created.getFilmCount());
+
+        Key key = Key.builder().partitionValue(created.getId()).build();
+        await(() -> Integer.valueOf(5).equals(this.table.getItem(key).join().getFilmCount()));
+        await(() -> this.enrichmentQueue.getBacklog() == 0);
+    }
+
+    @Test
+    public void create_backfillChangesETag() throws InterruptedException {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+
+        EntityExchangeResult<Planet> result = this.webTestClient.post()
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet("Tatooine"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class)
+                .returnResult();
+        Planet created = result.getResponseBody();
+        String createdETag = result.getResponseHeaders().getETag();
+
+        Key key = Key.builder().partitionValue(created.getId()).build();
+        await(() -> Integer.valueOf(5).equals(this.table.getItem(key).join().getFilmCount()));
+
+        String enrichedETag = this.webTestClient.get()
+                .uri("/planets/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(Planet.class)
+                .value(planet -> assertEquals(Integer.valueOf(5), planet.getFilmCount()))
+                .returnResult()
+                .getResponseHeaders()
+                .getETag();
+
+        assertNotNull(createdETag);
+        assertNotEquals(createdETag, enrichedETag);
+        assertEquals(Long.valueOf(2), this.table.getItem(key).join().getVersion());
+    }
+
+    @Test
+    public void create_deadLettersUnknownFilmCount() throws InterruptedException {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Hoth")).thenReturn(Mono.empty());
+
+        Planet created = this.create("Hoth");
+
+        await(() -> this.enrichmentQueue.getDeadLetters().stream()
+                .anyMatch(enrichment -> enrichment.getId().equals(created.getId())));
+        assertEquals(0, this.enrichmentQueue.getBacklog());
+
+        Key key = Key.builder().partitionValue(created.getId()).build();
+        assertNull(this.table.getItem(key).join().getFilmCount());
+    }
+
+    @Test
+    public void rename_skipsTheCountOfTheOldName() throws InterruptedException {
+        Sinks.One<Integer> tatooineFilmCount = Sinks.one();
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(tatooineFilmCount.asMono());
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Hoth")).thenReturn(Mono.just(1));
+
+        Planet created = this.create("Tatooine");
+        Mockito.verify(this.planetRemoteRepository, Mockito.timeout(5000)).getFilmCount("Tatooine");
+
+        // renamed while the count of its old name is being resolved
+        this.webTestClient.patch()
+                .uri("/planets/" + created.getId())
+                .header(HttpHeaders.IF_MATCH, "*")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(Map.of("name", "Hoth"))
+                .exchange()
+                .expectStatus().isOk();
+        tatooineFilmCount.tryEmitValue(5);
+
+        await(() -> this.enrichmentQueue.getBacklog() == 0);
+        Planet stored = this.table.getItem(Key.builder().partitionValue(created.getId()).build()).join();
+        assertEquals("Hoth", stored.getName());
+        assertEquals(Integer.valueOf(1), stored.getFilmCount());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void stop_cancelsScheduledRetries() throws InterruptedException {
+        DynamoDbAsyncTable<Planet> planetTable = Mockito.mock(DynamoDbAsyncTable.class);
+        Mockito.when(planetTable.tableName()).thenReturn("Planet");
+        Mockito.when(planetTable.tableSchema()).thenReturn(PlanetTableSchema.INSTANCE);
+        PlanetRemoteRepository remote = Mockito.mock(PlanetRemoteRepository.class);
+        Mockito.when(remote.getFilmCount("Tatooine")).thenReturn(Mono.error(new IllegalStateException("SWAPI is down")));
+
+        FilmCountEnrichmentQueue queue = new FilmCountEnrichmentQueue(Mockito.mock(DynamoDbAsyncClient.class), planetTable,
+                remote, Mockito.mock(PlanetCache.class), Mockito.mock(PlanetStatsRepository.class),
+                Mockito.mock(PlanetChangeFeed.class), new SimpleMeterRegistry(),
+                100, 25, Duration.ofMillis(10), 4, 5, Duration.ofMillis(200), 100);
+        queue.start();
+
+        Planet planet = new Planet();
+        planet.setId("1");
+        planet.setName("Tatooine");
+        queue.enqueue(planet).block(Duration.ofSeconds(5));
+        Mockito.verify(remote, Mockito.timeout(5000)).getFilmCount("Tatooine");
+
+        queue.stop();
+        Thread.sleep(1000);
+
+        // the retry due 200ms after the first failure never ran
+        Mockito.verify(remote, Mockito.times(1)).getFilmCount("Tatooine");
+        assertEquals(1, queue.getBacklog());
+        assertTrue(queue.getDeadLetters().isEmpty());
+    }
+
+    private Planet create(String name) {
+        return this.webTestClient.post()
+                .uri("/planets")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(planet(name))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Planet.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private static Planet planet(String name) {
+        Planet planet = new Planet();
+        planet.setName(name);
+        planet.setClimate("arid");
+        planet.setTerrain("desert");
+        return planet;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100 && !condition.getAsBoolean(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
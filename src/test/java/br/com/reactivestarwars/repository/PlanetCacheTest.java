@@ -0,0 +1,127 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PlanetCacheTest {
+
+    private PlanetCache planetCache;
+
+    @BeforeEach
+    public void setUp() {
+        this.planetCache = new PlanetCache(100, Duration.ZERO, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void get_coalescesConcurrentMisses() {
+
+        AtomicInteger loads = new AtomicInteger();
+
+        Flux<Planet> result = Flux.range(0, 100)
+                .flatMap(i -> this.planetCache.get("1", id -> {
+                    loads.incrementAndGet();
+                    return Mono.delay(Duration.ofMillis(100)).thenReturn(createPlanet(id));
+                }));
+
+        StepVerifier.create(result)
+                .expectNextCount(100)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void get_doesNotCacheMissingPlanets() {
+
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            StepVerifier.create(this.planetCache.get("1", id -> {
+                loads.incrementAndGet();
+                return Mono.empty();
+            }))
+                    .verifyComplete();
+        }
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void put_andInvalidate() {
+
+        AtomicInteger loads = new AtomicInteger();
+
+        this.planetCache.put(createPlanet("1"));
+
+        StepVerifier.create(this.planetCache.get("1", id -> {
+            loads.incrementAndGet();
+            return Mono.just(createPlanet(id));
+        }))
+                .expectNextMatches(planet -> planet.getId().equals("1"))
+                .verifyComplete();
+
+        assertEquals(0, loads.get());
+
+        this.planetCache.invalidate("1");
+
+        StepVerifier.create(this.planetCache.get("1", id -> {
+            loads.incrementAndGet();
+            return Mono.empty();
+        }))
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void get_returnsCopies() {
+
+        Planet planet = createPlanet("1");
+        this.planetCache.put(planet);
+        planet.setName("Hoth");
+
+        Planet cached = this.planetCache.get("1", id -> Mono.empty()).block();
+        assertEquals("Tatooine", cached.getName());
+        cached.setName("Hoth");
+
+        StepVerifier.create(this.planetCache.get("1", id -> Mono.empty()))
+                .expectNextMatches(found -> found.getName().equals("Tatooine"))
+                .verifyComplete();
+    }
+
+    @Test
+    public void get_expiresAfterTtl() throws InterruptedException {
+
+        PlanetCache expiring = new PlanetCache(100, Duration.ofMillis(50), new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        expiring.put(createPlanet("1"));
+        Thread.sleep(100);
+
+        StepVerifier.create(expiring.get("1", id -> {
+            loads.incrementAndGet();
+            return Mono.just(createPlanet(id));
+        }))
+                .expectNextCount(1)
+                .verifyComplete();
+
+        assertEquals(1, loads.get());
+    }
+
+    private Planet createPlanet(String id) {
+        Planet planet = new Planet();
+        planet.setId(id);
+        planet.setName("Tatooine");
+        return planet;
+    }
+}
@@ -0,0 +1,51 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PlanetCatalogTest {
+
+    @Test
+    public void getFilmCount_notLoaded() {
+        PlanetCatalog catalog = new PlanetCatalog();
+
+        assertFalse(catalog.isLoaded());
+        assertEquals(Optional.empty(), catalog.getFilmCount("Tatooine"));
+    }
+
+    @Test
+    public void getFilmCount_caseInsensitive() {
+        PlanetCatalog catalog = new PlanetCatalog();
+
+        catalog.replace(List.of(createPlanet("Tatooine", 5), createPlanet("Alderaan", 2)));
+
+        assertTrue(catalog.isLoaded());
+        assertEquals(2, catalog.size());
+        assertEquals(Optional.of(5), catalog.getFilmCount("tatooine"));
+        assertEquals(Optional.of(2), catalog.getFilmCount(" ALDERAAN "));
+        assertEquals(Optional.empty(), catalog.getFilmCount("Earth"));
+    }
+
+    @Test
+    public void replace_swapsIndex() {
+        PlanetCatalog catalog = new PlanetCatalog();
+
+        catalog.replace(List.of(createPlanet("Tatooine", 5)));
+        catalog.replace(List.of(createPlanet("Alderaan", 2)));
+
+        assertEquals(Optional.empty(), catalog.getFilmCount("Tatooine"));
+        assertEquals(Optional.of(2), catalog.getFilmCount("Alderaan"));
+    }
+
+    private Planet createPlanet(String name, Integer filmCount) {
+        Planet planet = new Planet();
+        planet.setName(name);
+        planet.setFilmCount(filmCount);
+        return planet;
+    }
+}
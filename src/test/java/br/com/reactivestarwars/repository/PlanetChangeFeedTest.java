@@ -0,0 +1,120 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetChange;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PlanetChangeFeedTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void changes_onlyFutureChangesWithoutPosition() {
+        PlanetChangeFeed feed = new PlanetChangeFeed(this.meterRegistry, 10, 10);
+        feed.created(planet("Hoth"));
+
+        Planet tatooine = planet("Tatooine");
+        StepVerifier.create(feed.changes(null, PlanetChangeFeed.SlowConsumerPolicy.DROP_OLDEST))
+                .then(() -> feed.deleted(tatooine))
+                .assertNext(change -> {
+                    assertEquals(PlanetChange.Type.DELETED, change.getType());
+                    assertEquals(tatooine.getId(), change.getId());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void changes_resumeAfterSequence() {
+        PlanetChangeFeed feed = new PlanetChangeFeed(this.meterRegistry, 10, 10);
+        List<Long> sequences = new ArrayList<>();
+        feed.changes(null, PlanetChangeFeed.SlowConsumerPolicy.DROP_OLDEST)
+                .subscribe(change -> sequences.add(change.getSequence()));
+
+        feed.created(planet("Hoth"));
+        feed.created(planet("Tatooine"));
+        feed.created(planet("Naboo"));
+
+        StepVerifier.create(feed.changes(sequences.get(0), PlanetChangeFeed.SlowConsumerPolicy.DROP_OLDEST))
+                .assertNext(change -> assertEquals(sequences.get(1), change.getSequence()))
+                .assertNext(change -> assertEquals(sequences.get(2), change.getSequence()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void changes_resyncWhenPositionIsNoLongerReplayable() {
+        PlanetChangeFeed feed = new PlanetChangeFeed(this.meterRegistry, 2, 10);
+        List<Long> sequences = new ArrayList<>();
+        feed.changes(null, PlanetChangeFeed.SlowConsumerPolicy.DROP_OLDEST)
+                .subscribe(change -> sequences.add(change.getSequence()));
+
+        for (int i = 0; i < 5; i++) {
+            feed.created(planet("Planet " + i));
+        }
+
+        StepVerifier.create(feed.changes(sequences.get(0), PlanetChangeFeed.SlowConsumerPolicy.DROP_OLDEST))
+                .assertNext(change -> {
+                    assertEquals(PlanetChange.Type.RESYNC, change.getType());
+                    assertEquals(sequences.get(2), change.getSequence());
+                })
+                .assertNext(change -> assertEquals(sequences.get(3), change.getSequence()))
+                .assertNext(change -> assertEquals(sequences.get(4), change.getSequence()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void changes_dropOldestForSlowConsumer() {
+        PlanetChangeFeed feed = new PlanetChangeFeed(this.meterRegistry, 10, 2);
+
+        StepVerifier.create(feed.changes(null, PlanetChangeFeed.SlowConsumerPolicy.DROP_OLDEST), 0)
+                .then(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        feed.created(planet("Planet " + i));
+                    }
+                })
+                .thenRequest(10)
+                .assertNext(change -> assertEquals("Planet 3", change.getPlanet().getName()))
+                .assertNext(change -> assertEquals("Planet 4", change.getPlanet().getName()))
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(3.0, this.meterRegistry.get("planets.changes.dropped").counter().count());
+    }
+
+    @Test
+    public void changes_disconnectSlowConsumer() {
+        PlanetChangeFeed feed = new PlanetChangeFeed(this.meterRegistry, 10, 2);
+
+        StepVerifier.create(feed.changes(null, PlanetChangeFeed.SlowConsumerPolicy.DISCONNECT), 0)
+                .then(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        feed.created(planet("Planet " + i));
+                    }
+                })
+                .thenRequest(10)
+                .thenConsumeWhile(change -> true)
+                .expectErrorMatches(Exceptions::isOverflow)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1.0, this.meterRegistry.get("planets.changes.disconnected").counter().count());
+    }
+
+    private static Planet planet(String name) {
+        Planet planet = new Planet();
+        planet.setId(UUID.randomUUID().toString());
+        planet.setName(name);
+        return planet;
+    }
+}
@@ -3,6 +3,9 @@ package br.com.reactivestarwars.repository;
 import br.com.reactivestarwars.domain.Planet;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
@@ -12,19 +15,27 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.runner.RunWith;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @RunWith(SpringRunner.class)
 public class PlanetRemoteRepositoryTest {
 
     private PlanetRemoteRepository planetRemoteRepository;
 
+    private PlanetCatalog planetCatalog;
+
+    private CircuitBreaker circuitBreaker;
+
     private ObjectMapper mapper = new ObjectMapper();
 
     public static MockWebServer mockedApi;
@@ -42,7 +53,17 @@ public class PlanetRemoteRepositoryTest {
 
     @BeforeEach
     public void setUp() {
-        this.planetRemoteRepository = new PlanetRemoteRepository("http://localhost:" + mockedApi.getPort());
+        FilmCountCache filmCountCache = new FilmCountCache(Duration.ofHours(1), Duration.ofMinutes(5), 100, new SimpleMeterRegistry());
+        this.planetCatalog = new PlanetCatalog();
+        this.circuitBreaker = CircuitBreaker.of("swapi", CircuitBreakerConfig.custom()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .recordException(SwapiCallPolicy::isTransient)
+                .build());
+        SwapiCallPolicy callPolicy = new SwapiCallPolicy(this.circuitBreaker,
+                new SwapiBulkhead(new SimpleMeterRegistry(), 10, 10, Duration.ofSeconds(1)), Duration.ofSeconds(2), 1, Duration.ofMillis(10));
+        this.planetRemoteRepository = new PlanetRemoteRepository(WebClient.create("http://localhost:" + mockedApi.getPort()),
+                filmCountCache, this.planetCatalog, callPolicy, true);
     }
 
     @Test
@@ -63,6 +84,130 @@ public class PlanetRemoteRepositoryTest {
         assertEquals("GET", recordedRequest.getMethod());
         assertEquals("/planets/?search=Tatooine", recordedRequest.getPath());
     }
+
+    @Test
+    public void getFilmCount_cached() throws IOException, InterruptedException {
+
+        String value = mapper.readValue(getClass().getResourceAsStream("/mockPlanetResponse.json"), JsonNode.class).toString();
+        mockedApi.enqueue(new MockResponse()
+                .setBody(value)
+                .addHeader("Content-Type", "application/json"));
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount("Tatooine"))
+                .expectNext(5)
+                .verifyComplete();
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount("tatooine"))
+                .expectNext(5)
+                .verifyComplete();
+
+        RecordedRequest recordedRequest = mockedApi.takeRequest();
+        assertEquals("/planets/?search=Tatooine", recordedRequest.getPath());
+        assertNull(mockedApi.takeRequest(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void getFilmCount_fromCatalog() throws IOException, InterruptedException {
+
+        String value = mapper.readValue(getClass().getResourceAsStream("/mockPlanetResponse.json"), JsonNode.class).toString();
+        mockedApi.enqueue(new MockResponse()
+                .setBody(value)
+                .addHeader("Content-Type", "application/json"));
+
+        PlanetCatalogLoader loader = new PlanetCatalogLoader(this.planetRemoteRepository, this.planetCatalog, 4, Duration.ofHours(1));
+
+        StepVerifier.create(loader.load())
+                .verifyComplete();
+
+        RecordedRequest recordedRequest = mockedApi.takeRequest();
+        assertEquals("/planets/?page=1", recordedRequest.getPath());
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount("TATOOINE"))
+                .expectNext(5)
+                .verifyComplete();
+
+        assertNull(mockedApi.takeRequest(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void getFilmCount_retriesServerError() throws IOException, InterruptedException {
+
+        String value = mapper.readValue(getClass().getResourceAsStream("/mockPlanetResponse.json"), JsonNode.class).toString();
+        mockedApi.enqueue(new MockResponse().setResponseCode(503));
+        mockedApi.enqueue(new MockResponse()
+                .setBody(value)
+                .addHeader("Content-Type", "application/json"));
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount("Tatooine"))
+                .expectNext(5)
+                .verifyComplete();
+
+        assertEquals("/planets/?search=Tatooine", mockedApi.takeRequest().getPath());
+        assertEquals("/planets/?search=Tatooine", mockedApi.takeRequest().getPath());
+    }
+
+    @Test
+    public void getFilmCount_unavailable() throws InterruptedException {
+
+        mockedApi.enqueue(new MockResponse().setResponseCode(503));
+        mockedApi.enqueue(new MockResponse().setResponseCode(503));
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount("Tatooine"))
+                .verifyComplete();
+
+        assertEquals(CircuitBreaker.State.OPEN, this.circuitBreaker.getState());
+        mockedApi.takeRequest();
+        mockedApi.takeRequest();
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount("Alderaan"))
+                .verifyComplete();
+
+        assertNull(mockedApi.takeRequest(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void getFilmCount_bulkheadFull() throws IOException, InterruptedException {
+
+        SwapiCallPolicy callPolicy = new SwapiCallPolicy(this.circuitBreaker,
+                new SwapiBulkhead(new SimpleMeterRegistry(), 1, 0, Duration.ofSeconds(1)), Duration.ofSeconds(2), 1, Duration.ofMillis(10));
+        PlanetRemoteRepository repository = new PlanetRemoteRepository(WebClient.create("http://localhost:" + mockedApi.getPort()),
+                new FilmCountCache(Duration.ofHours(1), Duration.ofMinutes(5), 100, new SimpleMeterRegistry()),
+                this.planetCatalog, callPolicy, true);
+
+        String value = mapper.readValue(getClass().getResourceAsStream("/mockPlanetResponse.json"), JsonNode.class).toString();
+        mockedApi.enqueue(new MockResponse()
+                .setBody(value)
+                .addHeader("Content-Type", "application/json")
+                .setBodyDelay(500, TimeUnit.MILLISECONDS));
+
+        Mono<Integer> holdingSlot = repository.getFilmCount("Tatooine").cache();
+        holdingSlot.subscribe();
+        assertEquals("/planets/?search=Tatooine", mockedApi.takeRequest().getPath());
+
+        StepVerifier.create(repository.getFilmCount("Alderaan"))
+                .verifyComplete();
+
+        StepVerifier.create(holdingSlot)
+                .expectNext(5)
+                .verifyComplete();
+
+        assertNull(mockedApi.takeRequest(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void getFilmCount_withoutName() throws InterruptedException {
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount(null))
+                .expectNext(0)
+                .verifyComplete();
+
+        StepVerifier.create(this.planetRemoteRepository.getFilmCount("  "))
+                .expectNext(0)
+                .verifyComplete();
+
+        assertNull(mockedApi.takeRequest(100, TimeUnit.MILLISECONDS));
+    }
+
     @Test
     public void getFilmCount_notExactMatch() throws IOException, InterruptedException {
 
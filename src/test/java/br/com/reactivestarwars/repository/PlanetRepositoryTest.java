@@ -0,0 +1,135 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.BatchItemResult;
+import br.com.reactivestarwars.domain.Planet;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.Key;
+import software.amazon.awssdk.enhanced.dynamodb.model.PutItemEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class PlanetRepositoryTest {
+
+    @SuppressWarnings("unchecked")
+    private final DynamoDbAsyncTable<Planet> planetTable = Mockito.mock(DynamoDbAsyncTable.class);
+
+    private final PlanetRemoteRepository planetRemoteRepository = Mockito.mock(PlanetRemoteRepository.class);
+
+    private final PlanetBatchWriter batchWriter = Mockito.mock(PlanetBatchWriter.class);
+
+    private final PlanetStatsRepository planetStats = Mockito.mock(PlanetStatsRepository.class);
+
+    private final PlanetCache planetCache = Mockito.mock(PlanetCache.class);
+
+    private final PlanetChangeFeed changeFeed = Mockito.mock(PlanetChangeFeed.class);
+
+    @Test
+    public void saveAll_waitsForBusyWriteSlots() {
+        Mockito.when(this.planetRemoteRepository.getFilmCount(anyString())).thenReturn(Mono.just(1));
+        Mockito.when(this.batchWriter.putAll(anyList()))
+                .thenReturn(Mono.delay(Duration.ofMillis(100)).thenReturn(Collections.emptyList()));
+
+        PlanetRepository repository = repository(1, Duration.ofMillis(1));
+
+        Flux<Planet> planets = Flux.range(0, 10)
+                .delayElements(Duration.ofMillis(5))
+                .map(i -> planet("Planet " + i));
+
+        StepVerifier.create(repository.saveAll(planets).map(BatchItemResult::getStatus).collectList())
+                .expectNext(Collections.nCopies(10, BatchItemResult.Status.CREATED))
+                .verifyComplete();
+    }
+
+    @Test
+    public void save_refusesToOverwriteAnExistingId() {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+        // DynamoDB already holds an item under the id, so the attribute_not_exists(id) condition fails
+        Mockito.when(this.planetTable.putItem(any(PutItemEnhancedRequest.class))).thenReturn(
+                CompletableFuture.failedFuture(ConditionalCheckFailedException.builder().message("exists").build()));
+
+        StepVerifier.create(repository(false).save(planet("Tatooine")))
+                .expectError(ConditionalCheckFailedException.class)
+                .verify();
+
+        ArgumentCaptor<PutItemEnhancedRequest<Planet>> request = ArgumentCaptor.forClass(PutItemEnhancedRequest.class);
+        Mockito.verify(this.planetTable).putItem(request.capture());
+        assertEquals("attribute_not_exists(#id)", request.getValue().conditionExpression().expression());
+        assertEquals(Map.of("#id", "id"), request.getValue().conditionExpression().expressionNames());
+
+        Mockito.verifyNoInteractions(this.planetCache, this.changeFeed, this.planetStats);
+        Mockito.verify(this.planetTable, Mockito.never()).getItem(any(Key.class));
+    }
+
+    @Test
+    public void save_returnsTheWrittenPlanet() {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+        Mockito.when(this.planetTable.putItem(any(PutItemEnhancedRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        StepVerifier.create(repository(false).save(planet("Tatooine")))
+                .assertNext(planet -> assertEquals(Integer.valueOf(5), planet.getFilmCount()))
+                .verifyComplete();
+
+        Mockito.verify(this.planetTable, Mockito.never()).getItem(any(Key.class));
+    }
+
+    @Test
+    public void save_readsBackTheWrittenPlanetWhenAsked() {
+        Mockito.when(this.planetRemoteRepository.getFilmCount("Tatooine")).thenReturn(Mono.just(5));
+        Mockito.when(this.planetTable.putItem(any(PutItemEnhancedRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        Planet stored = planet("Tatooine");
+        stored.setFilmCount(5);
+        stored.setVersion(1L);
+        Mockito.when(this.planetTable.getItem(any(Key.class))).thenReturn(CompletableFuture.completedFuture(stored));
+
+        StepVerifier.create(repository(true).save(planet("Tatooine")))
+                .expectNext(stored)
+                .verifyComplete();
+
+        ArgumentCaptor<PutItemEnhancedRequest<Planet>> written = ArgumentCaptor.forClass(PutItemEnhancedRequest.class);
+        Mockito.verify(this.planetTable).putItem(written.capture());
+        ArgumentCaptor<Key> read = ArgumentCaptor.forClass(Key.class);
+        Mockito.verify(this.planetTable).getItem(read.capture());
+        assertEquals(written.getValue().item().getId(), read.getValue().partitionKeyValue().s());
+    }
+
+    private PlanetRepository repository(boolean readAfterWrite) {
+        return repository(4, Duration.ofMillis(50), readAfterWrite);
+    }
+
+    private PlanetRepository repository(int batchWriteConcurrency, Duration batchWindow) {
+        return repository(batchWriteConcurrency, batchWindow, false);
+    }
+
+    private PlanetRepository repository(int batchWriteConcurrency, Duration batchWindow, boolean readAfterWrite) {
+        return new PlanetRepository(this.planetTable, Mockito.mock(DynamoDbAsyncClient.class),
+                this.planetRemoteRepository, this.batchWriter, this.planetCache,
+                Mockito.mock(PlanetWriteBuffer.class), this.planetStats, this.changeFeed,
+                Mockito.mock(FilmCountEnrichmentQueue.class), Mockito.mock(TableProvisioner.class),
+                false, 8, batchWriteConcurrency, batchWindow, readAfterWrite, false, 4, 4, 500, 0);
+    }
+
+    private static Planet planet(String name) {
+        Planet planet = new Planet();
+        planet.setName(name);
+        return planet;
+    }
+}
@@ -0,0 +1,95 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.config.TableProvisioner;
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.domain.PlanetStatCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbAsyncTable;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedAsyncClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+public class PlanetStatsRepositoryTest {
+
+    private final DynamoDbAsyncClient dbClient = Mockito.mock(DynamoDbAsyncClient.class);
+
+    private final TableProvisioner tableProvisioner = Mockito.mock(TableProvisioner.class);
+
+    private PlanetStatsRepository planetStats;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        DynamoDbAsyncTable<PlanetStatCounter> statsTable = Mockito.mock(DynamoDbAsyncTable.class);
+        Mockito.when(statsTable.tableName()).thenReturn("PlanetStats");
+        DynamoDbEnhancedAsyncClient enhancedDbClient = Mockito.mock(DynamoDbEnhancedAsyncClient.class);
+        Mockito.when(enhancedDbClient.table(anyString(), any(TableSchema.class))).thenReturn(statsTable);
+        Mockito.when(this.tableProvisioner.ready()).thenReturn(Mono.empty());
+
+        this.planetStats = new PlanetStatsRepository(this.dbClient, enhancedDbClient, this.tableProvisioner,
+                Duration.ofMinutes(1), 8, 100, 100, Duration.ofMillis(50));
+        this.planetStats.startWriter();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        this.planetStats.stop();
+    }
+
+    @Test
+    public void record_doesNotWaitForTheTable() {
+        // a table that never answers must not hold up the planet write
+        Mockito.when(this.dbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(new CompletableFuture<>());
+
+        this.planetStats.record(null, planet("arid", "desert"));
+
+        assertEquals(1, this.planetStats.get().getTotal());
+        assertEquals(Map.of("arid", 1L), this.planetStats.get().getByClimate());
+    }
+
+    @Test
+    public void record_sumsQueuedDeltasPerCounter() {
+        Mockito.when(this.dbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(UpdateItemResponse.builder().build()));
+
+        this.planetStats.record(null, planet("arid", "desert"));
+        this.planetStats.record(null, planet("arid", "tundra"));
+        this.planetStats.record(planet("arid", "tundra"), null);
+
+        ArgumentCaptor<UpdateItemRequest> requests = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        Mockito.verify(this.dbClient, Mockito.timeout(1000).times(4)).updateItem(requests.capture());
+
+        Map<String, String> added = requests.getAllValues().stream()
+                .collect(Collectors.toMap(request -> request.key().get("id").s(),
+                        request -> request.expressionAttributeValues().get(":delta").n()));
+        assertEquals(Map.of(
+                PlanetStatsRepository.TOTAL, "1",
+                PlanetStatsRepository.CLIMATE + "arid", "1",
+                PlanetStatsRepository.TERRAIN + "desert", "1",
+                PlanetStatsRepository.FILM_COUNT + PlanetStatsRepository.UNKNOWN, "1"), added);
+    }
+
+    private static Planet planet(String climate, String terrain) {
+        Planet planet = new Planet();
+        planet.setName("Planet");
+        planet.setClimate(climate);
+        planet.setTerrain(terrain);
+        return planet;
+    }
+}
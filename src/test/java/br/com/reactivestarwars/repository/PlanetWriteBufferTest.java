@@ -0,0 +1,104 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import br.com.reactivestarwars.exception.WriteBufferFullException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+
+public class PlanetWriteBufferTest {
+
+    private final PlanetBatchWriter batchWriter = Mockito.mock(PlanetBatchWriter.class);
+
+    private PlanetWriteBuffer writeBuffer;
+
+    @AfterEach
+    public void tearDown() {
+        this.writeBuffer.stop();
+    }
+
+    @Test
+    public void write_coalescesConcurrentWrites() {
+        Mockito.when(this.batchWriter.putAll(anyList())).thenReturn(Mono.just(Collections.emptyList()));
+        this.writeBuffer = start(100, Duration.ofMillis(50));
+
+        List<Planet> planets = IntStream.range(0, 10)
+                .mapToObj(i -> planet("Planet " + i))
+                .collect(Collectors.toList());
+
+        StepVerifier.create(Flux.fromIterable(planets).flatMap(this.writeBuffer::write))
+                .expectNextCount(10)
+                .verifyComplete();
+
+        Mockito.verify(this.batchWriter, Mockito.times(1)).putAll(anyList());
+    }
+
+    @Test
+    public void write_failsOnlyUnprocessedWrites() {
+        Planet unprocessed = planet("Hoth");
+        Planet written = planet("Tatooine");
+        Mockito.when(this.batchWriter.putAll(anyList())).thenReturn(Mono.just(Collections.singletonList(unprocessed)));
+        this.writeBuffer = start(100, Duration.ofMillis(50));
+
+        Mono<Planet> failed = this.writeBuffer.write(unprocessed);
+        Mono<Planet> succeeded = this.writeBuffer.write(written);
+
+        StepVerifier.create(Mono.zip(failed.materialize(), succeeded.materialize()))
+                .assertNext(results -> {
+                    assertTrue(results.getT1().isOnError());
+                    assertEquals(written, results.getT2().get());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    public void write_propagatesBatchFailure() {
+        Mockito.when(this.batchWriter.putAll(anyList())).thenReturn(Mono.error(new IllegalStateException("boom")));
+        this.writeBuffer = start(100, Duration.ofMillis(10));
+
+        StepVerifier.create(this.writeBuffer.write(planet("Hoth")))
+                .expectErrorMessage("boom")
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    public void write_refusesWhenFull() {
+        Mockito.when(this.batchWriter.putAll(anyList())).thenReturn(Mono.never());
+        this.writeBuffer = start(2, Duration.ofMillis(10));
+
+        this.writeBuffer.write(planet("Hoth")).subscribe();
+        this.writeBuffer.write(planet("Tatooine")).subscribe();
+
+        StepVerifier.create(this.writeBuffer.write(planet("Dagobah")))
+                .expectError(WriteBufferFullException.class)
+                .verify(Duration.ofSeconds(5));
+    }
+
+    private PlanetWriteBuffer start(int capacity, Duration window) {
+        PlanetWriteBuffer buffer = new PlanetWriteBuffer(this.batchWriter, new SimpleMeterRegistry(),
+                capacity, 25, window, 4);
+        buffer.start();
+        return buffer;
+    }
+
+    private static Planet planet(String name) {
+        Planet planet = new Planet();
+        planet.setId(UUID.randomUUID().toString());
+        planet.setName(name);
+        return planet;
+    }
+}
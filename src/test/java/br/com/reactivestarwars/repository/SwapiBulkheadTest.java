@@ -0,0 +1,74 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.exception.SwapiOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SwapiBulkheadTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    public void limit_queuesCallsBeyondTheCap() {
+        SwapiBulkhead bulkhead = new SwapiBulkhead(this.meterRegistry, 1, 1, Duration.ofSeconds(5));
+        Sinks.One<String> first = Sinks.one();
+
+        Disposable running = bulkhead.limit(first.asMono()).subscribe();
+        Mono<String> queued = bulkhead.limit(Mono.just("second"));
+
+        StepVerifier.create(queued)
+                .then(() -> {
+                    assertEquals(1, bulkhead.getInFlight());
+                    assertEquals(1, bulkhead.getQueued());
+                    first.tryEmitValue("first");
+                })
+                .expectNext("second")
+                .verifyComplete();
+
+        assertEquals(0, bulkhead.getInFlight());
+        assertEquals(0, bulkhead.getQueued());
+        running.dispose();
+    }
+
+    @Test
+    public void limit_rejectsWhenQueueIsFull() {
+        SwapiBulkhead bulkhead = new SwapiBulkhead(this.meterRegistry, 1, 0, Duration.ofSeconds(5));
+
+        Disposable running = bulkhead.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(bulkhead.limit(Mono.just("rejected")))
+                .expectError(SwapiOverloadedException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(1.0, this.meterRegistry.get("swapi.bulkhead.rejected").tag("reason", "queueFull").counter().count());
+        running.dispose();
+        assertEquals(0, bulkhead.getInFlight());
+    }
+
+    @Test
+    public void limit_rejectsAfterMaxWait() {
+        SwapiBulkhead bulkhead = new SwapiBulkhead(this.meterRegistry, 1, 1, Duration.ofMillis(50));
+
+        Disposable running = bulkhead.limit(Mono.never()).subscribe();
+
+        StepVerifier.create(bulkhead.limit(Mono.just("rejected")))
+                .expectError(SwapiOverloadedException.class)
+                .verify(Duration.ofSeconds(5));
+
+        assertEquals(0, bulkhead.getQueued());
+        assertEquals(1.0, this.meterRegistry.get("swapi.bulkhead.rejected").tag("reason", "waitTimeout").counter().count());
+
+        running.dispose();
+        StepVerifier.create(bulkhead.limit(Mono.just("admitted")))
+                .expectNext("admitted")
+                .verifyComplete();
+    }
+}
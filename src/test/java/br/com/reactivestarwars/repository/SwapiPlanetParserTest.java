@@ -0,0 +1,97 @@
+package br.com.reactivestarwars.repository;
+
+import br.com.reactivestarwars.domain.Planet;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class SwapiPlanetParserTest {
+
+    private final DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+    @Test
+    public void parse_splitAcrossBuffers() throws IOException {
+        SwapiPlanetParser parser = new SwapiPlanetParser();
+
+        StepVerifier.create(parser.parse(chunked(read("/mockManyPlanetResponse.json"), 7)))
+                .expectNextMatches(planet -> isPlanet(planet, "1", "Tatooine", "arid", "desert", 5))
+                .expectNextMatches(planet -> isPlanet(planet, "2", "Alderaan", "temperate", "grasslands, mountains", 2))
+                .verifyComplete();
+
+        assertEquals(60, parser.getCount());
+    }
+
+    @Test
+    public void parse_missingFilms() throws IOException {
+        StepVerifier.create(new SwapiPlanetParser().parse(chunked(read("/mockPlanetResponse_missingFilms.json"), 64)))
+                .expectNextMatches(planet -> planet.getFilmCount() == 0)
+                .verifyComplete();
+    }
+
+    @Test
+    public void parse_emptyResults() throws IOException {
+        SwapiPlanetParser parser = new SwapiPlanetParser();
+
+        StepVerifier.create(parser.parse(chunked(read("/mockPlanetResponse_emptyResults.json"), 64)))
+                .verifyComplete();
+    }
+
+    @Test
+    public void parse_ignoresNestedObjects() {
+        String json = "{\"results\":[{\"name\":\"Hoth\",\"extra\":{\"name\":\"ignored\",\"films\":[1,2,3]},"
+                + "\"films\":[{\"title\":\"V\"}],\"url\":null}]}";
+
+        SwapiPlanetParser parser = new SwapiPlanetParser();
+
+        StepVerifier.create(parser.parse(chunked(json.getBytes(StandardCharsets.UTF_8), 5)))
+                .expectNextMatches(planet -> "Hoth".equals(planet.getName())
+                        && planet.getFilmCount() == 1
+                        && planet.getId() == null)
+                .verifyComplete();
+
+        assertNull(parser.getCount());
+    }
+
+    @Test
+    public void parse_truncated() {
+        byte[] json = "{\"count\":1,\"results\":[{\"name\":\"Hoth\"".getBytes(StandardCharsets.UTF_8);
+
+        StepVerifier.create(new SwapiPlanetParser().parse(chunked(json, 8)))
+                .verifyError(DecodingException.class);
+    }
+
+    private static boolean isPlanet(Planet planet, String id, String name, String climate, String terrain, int films) {
+        return id.equals(planet.getId())
+                && name.equals(planet.getName())
+                && climate.equals(planet.getClimate())
+                && terrain.equals(planet.getTerrain())
+                && planet.getFilmCount() == films;
+    }
+
+    private byte[] read(String resource) throws IOException {
+        try (InputStream stream = getClass().getResourceAsStream(resource)) {
+            return stream.readAllBytes();
+        }
+    }
+
+    private Flux<DataBuffer> chunked(byte[] bytes, int chunkSize) {
+        List<byte[]> chunks = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+            chunks.add(Arrays.copyOfRange(bytes, offset, Math.min(bytes.length, offset + chunkSize)));
+        }
+        return Flux.fromIterable(chunks).map(this.bufferFactory::wrap);
+    }
+}